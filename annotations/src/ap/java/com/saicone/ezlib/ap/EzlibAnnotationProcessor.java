@@ -10,6 +10,7 @@ import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
@@ -17,16 +18,29 @@ import javax.tools.Diagnostic;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
- * Annotation processor for ezlib annotations.
+ * Annotation processor for ezlib annotations.<br>
+ * Files with {@code .ezlib} extension are saved using a compact line format, other files are saved as JSON.<br>
+ * If the option {@code ezlib.resolve} is enabled and ezlib loader is part of the processor path,
+ * the dependency graph is resolved at compile time and saved into generated file, so pom files are not read at runtime.
+ * <ul>
+ *     <li>{@code ezlib.resolve} true to resolve the dependency graph.</li>
+ *     <li>{@code ezlib.repositories} comma-separated repository urls or local directories used to resolve before loaded repositories.</li>
+ *     <li>{@code ezlib.folder} the folder to save downloaded files, by default is a temporary folder.</li>
+ * </ul>
  *
  * @author Rubenicos
  */
 @SupportedAnnotationTypes({"com.saicone.ezlib.Repository", "com.saicone.ezlib.Dependency", "com.saicone.ezlib.Dependencies"})
+@SupportedOptions({"ezlib.resolve", "ezlib.repositories", "ezlib.folder"})
 public class EzlibAnnotationProcessor extends AbstractProcessor {
 
     private ProcessingEnvironment environment;
@@ -98,8 +112,19 @@ public class EzlibAnnotationProcessor extends AbstractProcessor {
             getGeneratedFiles().add(entry.getKey());
             try {
                 final FileObject fileObject = environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", entry.getKey());
+                final Map<String, Object> map = entry.getValue().asMap();
+                if (Boolean.parseBoolean(environment.getOptions().get("ezlib.resolve"))) {
+                    final Map<String, Object> graph = resolve(entry.getKey(), entry.getValue());
+                    if (graph != null) {
+                        map.put("graph", graph);
+                    }
+                }
                 try (BufferedWriter writer = new BufferedWriter(fileObject.openWriter())) {
-                    gson.toJson(entry.getValue().asMap(), writer);
+                    if (entry.getKey().endsWith(".ezlib")) {
+                        writeCompact(map, writer);
+                    } else {
+                        gson.toJson(map, writer);
+                    }
                 }
             } catch (IOException e) {
                 environment.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to generate dependencies file at " + entry.getKey() + "\nReason:" + e.getMessage());
@@ -150,6 +175,12 @@ public class EzlibAnnotationProcessor extends AbstractProcessor {
         if (repository.allowInsecureProtocol()) {
             map.put("allowInsecureProtocol", true);
         }
+        if (!repository.updatePolicy().equals("daily")) {
+            map.put("updatePolicy", repository.updatePolicy());
+        }
+        if (repository.include().length > 0) {
+            map.put("include", Arrays.asList(repository.include()));
+        }
         return map;
     }
 
@@ -196,6 +227,168 @@ public class EzlibAnnotationProcessor extends AbstractProcessor {
         return map;
     }
 
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> resolve(String name, SerializedFile file) {
+        // Extra repositories are used to resolve, but the generated graph only reference loaded repositories
+        final List<Map<String, Object>> repositories = new ArrayList<>();
+        final Set<String> extra = new HashSet<>();
+        final String option = environment.getOptions().get("ezlib.repositories");
+        if (option != null) {
+            for (String s : option.split(",")) {
+                String url = s.trim();
+                if (url.isEmpty()) {
+                    continue;
+                }
+                if (!url.contains("://")) {
+                    url = new File(url).getAbsoluteFile().toURI().toString();
+                }
+                if (!url.endsWith("/")) {
+                    url = url + "/";
+                }
+                final Map<String, Object> repository = new LinkedHashMap<>();
+                repository.put("url", url);
+                repository.put("allowInsecureProtocol", true);
+                repositories.add(repository);
+                extra.add(url);
+            }
+        }
+        repositories.addAll(file.repositories);
+
+        // Dependencies with runtime checks are not included into graph
+        final List<Map<String, Object>> dependencies = new ArrayList<>();
+        for (Map<String, Object> dependency : file.dependencies) {
+            if (dependency.containsKey("test") || dependency.containsKey("condition")) {
+                continue;
+            }
+            final Map<String, Object> map = new LinkedHashMap<>(dependency);
+            if (map.containsKey("relocate")) {
+                map.put("relocate", flatRelocations((Map<String, String>) map.get("relocate")));
+            }
+            dependencies.add(map);
+        }
+        if (dependencies.isEmpty()) {
+            return null;
+        }
+
+        final Map<String, Object> info = new LinkedHashMap<>();
+        info.put("repositories", repositories);
+        info.put("dependencies", dependencies);
+        info.put("relocations", flatRelocations(file.relocations));
+
+        final String folderOption = environment.getOptions().get("ezlib.folder");
+        final File folder = folderOption != null ? new File(folderOption) : new File(System.getProperty("java.io.tmpdir"), "ezlib-processor");
+        final ClassLoader classLoader = EzlibAnnotationProcessor.class.getClassLoader();
+        try {
+            final Class<?> ezlibClass = Class.forName("com.saicone.ezlib.Ezlib", true, classLoader);
+            final Class<?> loaderClass = Class.forName("com.saicone.ezlib.EzlibLoader", true, classLoader);
+            final Class<?> dependenciesClass = Class.forName("com.saicone.ezlib.EzlibLoader$Dependencies", true, classLoader);
+            final Class<?> graphClass = Class.forName("com.saicone.ezlib.EzlibLoader$DependencyGraph", true, classLoader);
+
+            final Object ezlib = ezlibClass.getConstructor(File.class).newInstance(folder);
+            final Object loader = loaderClass.getConstructor(ClassLoader.class, File.class, ezlibClass, boolean.class, String[].class)
+                    .newInstance(classLoader, folder, ezlib, true, new String[] {null});
+            final BiConsumer<Integer, String> logger = (level, text) -> {
+                if (level <= 2) {
+                    environment.getMessager().printMessage(level == 1 ? Diagnostic.Kind.WARNING : Diagnostic.Kind.NOTE, text);
+                }
+            };
+            loaderClass.getMethod("logger", BiConsumer.class).invoke(loader, logger);
+            // Keep package placeholder, so relocations are parsed by the loader that executes the graph
+            loaderClass.getMethod("replace", String.class, String.class).invoke(loader, "{package}", "{package}");
+            final Object loadable = dependenciesClass.getMethod("valueOf", Map.class).invoke(null, info);
+            dependenciesClass.getMethod("load", loaderClass).invoke(loadable, loader);
+
+            Object graph = loaderClass.getMethod("plan").invoke(loader);
+            graph = loaderClass.getMethod("pin", graphClass).invoke(loader, graph);
+            final Map<String, Object> map = (Map<String, Object>) graphClass.getMethod("asMap").invoke(graph);
+            // The key only represent the information from processor environment
+            map.remove("key");
+            for (Map<String, Object> node : (List<Map<String, Object>>) map.get("dependencies")) {
+                if (extra.contains(node.get("repository"))) {
+                    node.remove("repository");
+                    node.remove("format");
+                }
+            }
+            return map;
+        } catch (ClassNotFoundException | NoClassDefFoundError e) {
+            environment.getMessager().printMessage(Diagnostic.Kind.WARNING, "Cannot resolve dependencies of " + name + " because ezlib loader is not part of the processor path");
+        } catch (InvocationTargetException e) {
+            environment.getMessager().printMessage(Diagnostic.Kind.WARNING, "Cannot resolve dependencies of " + name + "\nReason: " + e.getCause());
+        } catch (ReflectiveOperationException e) {
+            environment.getMessager().printMessage(Diagnostic.Kind.WARNING, "Cannot resolve dependencies of " + name + " with the current ezlib loader version\nReason: " + e);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeCompact(Map<String, Object> map, Writer writer) throws IOException {
+        writer.write("# Generated by ezlib annotation processor\n");
+        for (Map<String, Object> repository : (Collection<Map<String, Object>>) map.getOrDefault("repositories", Collections.emptyList())) {
+            writeRecord("repository", repository, writer);
+        }
+        for (Map.Entry<String, String> entry : ((Map<String, String>) map.getOrDefault("relocations", Collections.emptyMap())).entrySet()) {
+            writer.write("relocation\t" + escape(entry.getKey()) + '\t' + escape(entry.getValue()) + '\n');
+        }
+        for (Map<String, Object> dependency : (Collection<Map<String, Object>>) map.getOrDefault("dependencies", Collections.emptyList())) {
+            writeRecord("dependency", dependency, writer);
+        }
+        final Map<String, Object> graph = (Map<String, Object>) map.get("graph");
+        if (graph != null) {
+            final Map<String, Object> info = new LinkedHashMap<>(graph);
+            final Collection<Map<String, Object>> nodes = (Collection<Map<String, Object>>) info.remove("dependencies");
+            writeRecord("graph", info, writer);
+            if (nodes != null) {
+                for (Map<String, Object> node : nodes) {
+                    writeRecord("node", node, writer);
+                }
+            }
+        }
+    }
+
+    private void writeRecord(String type, Map<String, Object> map, Writer writer) throws IOException {
+        final StringBuilder builder = new StringBuilder(type);
+        appendFields(builder, "", map);
+        writer.write(builder.append('\n').toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void appendFields(StringBuilder builder, String prefix, Map<String, Object> map) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            final String key = prefix + entry.getKey();
+            final Object value = entry.getValue();
+            if (value instanceof Map) {
+                if (entry.getKey().equals("relocate") || entry.getKey().equals("relocations")) {
+                    for (Map.Entry<String, String> relocation : ((Map<String, String>) value).entrySet()) {
+                        builder.append('\t').append(key).append('=').append(escape(relocation.getKey() + ' ' + relocation.getValue()));
+                    }
+                } else {
+                    appendFields(builder, key + '.', (Map<String, Object>) value);
+                }
+            } else if (value instanceof Collection) {
+                for (Object o : (Collection<Object>) value) {
+                    builder.append('\t').append(key).append('=').append(escape(String.valueOf(o)));
+                }
+            } else if (Boolean.TRUE.equals(value)) {
+                builder.append('\t').append(key);
+            } else if (value != null) {
+                builder.append('\t').append(key).append('=').append(escape(String.valueOf(value)));
+            }
+        }
+    }
+
+    private String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private List<String> flatRelocations(Map<String, String> relocations) {
+        final List<String> list = new ArrayList<>();
+        for (Map.Entry<String, String> entry : relocations.entrySet()) {
+            list.add(entry.getKey());
+            list.add(entry.getValue());
+        }
+        return list;
+    }
+
     private Map<String, String> parseRelocations(String... relocations) {
         final Map<String, String> map = new LinkedHashMap<>();
         if (relocations.length < 2) {
@@ -32,7 +32,8 @@ public @interface Dependencies {
     String[] relocations() default {};
 
     /**
-     * File name to save dependencies information.
+     * File name to save dependencies information.<br>
+     * Use a {@code .ezlib} extension to save a compact file that ezlib loader reads without any other library.
      *
      * @return file name.
      */
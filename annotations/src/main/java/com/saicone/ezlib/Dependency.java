@@ -19,7 +19,8 @@ public @interface Dependency {
     String value();
 
     /**
-     * File name to save dependency information.
+     * File name to save dependency information.<br>
+     * Use a {@code .ezlib} extension to save a compact file that ezlib loader reads without any other library.
      *
      * @return file name.
      */
@@ -87,7 +88,8 @@ public @interface Dependency {
     String[] test() default {};
 
     /**
-     * Conditional string to check the dependency need to be downloaded.
+     * Conditional string to check the dependency need to be downloaded.<br>
+     * Conditions can be joined with "&amp;&amp;", "||", "!" and parentheses, like "java &gt;= 11 &amp;&amp; !legacy".
      *
      * @return an array of conditions to load the dependency.
      */
@@ -32,7 +32,8 @@ public @interface Repository {
     String format() default "%group%/%artifact%/%version%/%artifact%-%fileVersion%.%fileType%";
 
     /**
-     * File name to save repository information.
+     * File name to save repository information.<br>
+     * Use a {@code .ezlib} extension to save a compact file that ezlib loader reads without any other library.
      *
      * @return file name.
      */
@@ -45,4 +46,21 @@ public @interface Repository {
      * @return true if this repository will be used despite using an insecure protocol.
      */
     boolean allowInsecureProtocol() default false;
+
+    /**
+     * Update policy to check for new repository metadata.<br>
+     * The accepted values are "always", "daily", "interval:X" (in minutes) and "never".
+     *
+     * @return the update policy used with cached metadata.
+     */
+    String updatePolicy() default "daily";
+
+    /**
+     * Dependency patterns that can be downloaded from this repository, for example
+     * "com.github.*" or "com.saicone:ezlib".<br>
+     * Empty to include any dependency.
+     *
+     * @return an array of group or group:artifact patterns.
+     */
+    String[] include() default {};
 }
@@ -9,6 +9,10 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
@@ -16,12 +20,30 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -35,6 +57,10 @@ import java.util.stream.Collectors;
 public class EzlibLoader {
 
     private static final Pattern NODE_VARIABLE = Pattern.compile("\\$\\{([^}]+)}");
+    private static final XMLInputFactory XML_FACTORY = xmlFactory();
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int LOCK_VERSION = 2;
+    private static final long DEFAULT_MISS_EXPIRATION = 24L * 60 * 60 * 1000;
     private static boolean USE_ANNOTATIONS = true;
 
     // Loader parameters
@@ -47,14 +73,44 @@ public class EzlibLoader {
 
     // Loadable objects
     private final List<Repository> repositories = new ArrayList<>();
-    private final List<Dependency> dependencies = new ArrayList<>();
+    private final DependencyRegistry dependencies = new DependencyRegistry();
     private final Map<String, String> relocations = new HashMap<>();
+    private final List<DependencyGraph> graphs = new ArrayList<>();
     private final Map<String, Condition<?>> conditions = new HashMap<>();
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
     private final Set<Dependency> applied = new HashSet<>();
+    private final Map<String, Metadata> metadata = new ConcurrentHashMap<>();
+    private final Map<String, Pom> poms = new ConcurrentHashMap<>();
+    private final List<String> overrides = new ArrayList<>();
+    private final Map<String, DependencyGraph.Node> pinned = new ConcurrentHashMap<>();
+    private final Map<String, File> downloads = new ConcurrentHashMap<>();
+    private boolean partial;
+    private int session;
+    private ExecutorService createdScheduler;
+    private Ezlib.Transport transport;
+    private Properties misses;
+    private volatile boolean skipMisses = true;
+    private volatile boolean missSkipped;
+    private final Map<String, RepositoryStats> stats = new ConcurrentHashMap<>();
 
     // Loader options
     private BiConsumer<Integer, String> logger = (level, text) -> {};
+    private int parallelism = DEFAULT_PARALLELISM;
+    private ExecutorService executor;
+    private ExecutorService scheduler;
+    private ExecutorService hedger;
+    private int hedgeRepositories;
+    private long hedgeDelay;
+    private File lockFile;
+    private long missExpiration = DEFAULT_MISS_EXPIRATION;
+    private boolean rankRepositories = true;
+    private Mediation mediation = Mediation.NONE;
+    private ClassProbe classProbe = ClassProbe.RESOURCE;
+    private boolean detectProvided;
+    private volatile Map<String, String> provided;
+    private final Map<ClassLoader, Map<String, Boolean>> classes = new ConcurrentHashMap<>();
     private final Map<String, String> replaces = new HashMap<>();
+    private volatile Replacer replacer;
     private final Map<String, BiConsumer<Reader, EzlibLoader>> fileReaders = new HashMap<>();
 
     /**
@@ -178,6 +234,7 @@ public class EzlibLoader {
             this.files = files.length < 1 ? new String[] {"ezlib-dependencies.json"} : files;
         }
         this.ezlib = ezlib;
+        this.lockFile = new File(getFolder(), "ezlib-lock.json");
         ezlib.setParentClassLoader(classLoader);
         if (useDefaultOptions) {
             initDefaultOptions();
@@ -189,12 +246,118 @@ public class EzlibLoader {
      *
      * @param xmlParser the xml parser instance to use.
      * @return          the current ezlib loader.
+     * @deprecated pom and metadata files are read with a StAX streaming parser using {@link Pom} and {@link Metadata},
+     *             so the provided parser is not used to load dependencies.
      */
+    @Deprecated
     public EzlibLoader xmlParser(XmlParser xmlParser) {
         this.xmlParser = xmlParser;
         return this;
     }
 
+    /**
+     * Set the maximum number of concurrent fetches used to download dependency files.<br>
+     * A value of 1 or less disables the parallel fetching and every file will be downloaded while is applied.
+     *
+     * @param parallelism the number of concurrent fetches.
+     * @return            the current ezlib loader.
+     */
+    public EzlibLoader parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Set the executor used to fetch dependency files concurrently.<br>
+     * Take in count the provided executor will not be shutdown by ezlib loader.
+     *
+     * @param executor the executor to use, null to create a bounded executor on every load.
+     * @return         the current ezlib loader.
+     */
+    public EzlibLoader executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Set the hedged lookup for dependencies without explicit repository, that download the dependency file
+     * from the first repositories concurrently and keep the first completed download.<br>
+     * A positive delay start every request after the delay, or when the previous request fails,
+     * so the next repositories are only requested if the first ones are slow.
+     *
+     * @param repositories the number of repositories to request concurrently, 1 or less to disable it.
+     * @param delay        the delay in milliseconds between requests, 0 to start all requests at the same time.
+     * @return             the current ezlib loader.
+     */
+    public EzlibLoader hedge(int repositories, long delay) {
+        this.hedgeRepositories = repositories;
+        this.hedgeDelay = Math.max(delay, 0);
+        return this;
+    }
+
+    /**
+     * Set the lock file that save the resolved dependencies, so the next loads with the same
+     * information will append the locked files without resolving dependencies again.<br>
+     * The checksum of every appended file is saved too, and any file that doesn't match it is rejected.
+     *
+     * @param lockFile the lock file to use, null to disable it.
+     * @return         the current ezlib loader.
+     */
+    public EzlibLoader lockFile(File lockFile) {
+        this.lockFile = lockFile;
+        return this;
+    }
+
+    /**
+     * Set the time that a file not found on repository is remembered, so the next loads
+     * will skip that repository without any request until the time expires.<br>
+     * If the dependency cannot be found on any repository, the remembered misses are ignored once.
+     *
+     * @param missExpiration the expiration time in milliseconds, 0 or less to disable it.
+     * @return               the current ezlib loader.
+     */
+    public EzlibLoader missExpiration(long missExpiration) {
+        this.missExpiration = missExpiration;
+        return this;
+    }
+
+    /**
+     * Change the repository ranking, that save the latency, error rate and hit rate of every repository
+     * to look up dependencies without explicit repository using the faster and more reliable repositories first.
+     *
+     * @param rankRepositories true to rank repositories by measured stats, false to use the insertion order.
+     * @return                 the current ezlib loader.
+     */
+    public EzlibLoader rankRepositories(boolean rankRepositories) {
+        this.rankRepositories = rankRepositories;
+        return this;
+    }
+
+    /**
+     * Set the version mediation used when the same artifact is required with different versions,
+     * so only one version of every artifact is appended into class loader.<br>
+     * By default, every required version is loaded.
+     *
+     * @param mediation the mediation to use, {@link Mediation#NONE} to load every required version.
+     * @return          the current ezlib loader.
+     */
+    public EzlibLoader mediation(Mediation mediation) {
+        this.mediation = mediation == null ? Mediation.NONE : mediation;
+        return this;
+    }
+
+    /**
+     * Set the method used to test if a class exists in class loader.
+     *
+     * @param classProbe the probe to use, {@link ClassProbe#INITIALIZE} to load and initialize tested classes.
+     * @return           the current ezlib loader.
+     */
+    public EzlibLoader classProbe(ClassProbe classProbe) {
+        this.classProbe = classProbe == null ? ClassProbe.RESOURCE : classProbe;
+        classes.clear();
+        return this;
+    }
+
     /**
      * Add a global relocation to loader.
      *
@@ -239,6 +402,7 @@ public class EzlibLoader {
      */
     public EzlibLoader replace(String target, String replacement) {
         replaces.put(target, replacement);
+        replacer = null;
         return this;
     }
 
@@ -291,14 +455,134 @@ public class EzlibLoader {
     }
 
     /**
-     * Get the actual XML parser instance.
+     * Get the actual XML parser instance, a default parser is created if it was not set.
      *
      * @return the XML parser instance.
+     * @deprecated pom and metadata files are read with a StAX streaming parser using {@link Pom} and {@link Metadata},
+     *             so the returned parser is not used to load dependencies.
      */
+    @Deprecated
     public XmlParser getXmlParser() {
+        if (xmlParser == null) {
+            xmlParser = new XmlParser();
+        }
         return xmlParser;
     }
 
+    /**
+     * Get the actual lock file.
+     *
+     * @return the file that save the resolved dependencies or null if it's disabled.
+     */
+    public File getLockFile() {
+        return lockFile;
+    }
+
+    /**
+     * Get the time that a file not found on repository is remembered.
+     *
+     * @return the expiration time in milliseconds.
+     */
+    public long getMissExpiration() {
+        return missExpiration;
+    }
+
+    /**
+     * Check if the repositories are ranked by measured stats.
+     *
+     * @return true if repositories are ranked.
+     */
+    public boolean isRankRepositories() {
+        return rankRepositories;
+    }
+
+    /**
+     * Get the version mediation.
+     *
+     * @return the mediation used to select artifact versions.
+     */
+    public Mediation getMediation() {
+        return mediation;
+    }
+
+    /**
+     * Set the provided artifacts detection, so dependencies that are already provided by parent class loader
+     * with a compatible version are not downloaded and appended again.<br>
+     * Provided artifacts are found from maven information inside jars, and only dependencies without
+     * relocations that are not appended into inner class loader can be provided.
+     *
+     * @param detectProvided true to skip provided dependencies.
+     * @return               the current ezlib loader.
+     */
+    public EzlibLoader detectProvided(boolean detectProvided) {
+        this.detectProvided = detectProvided;
+        return this;
+    }
+
+    /**
+     * Get the current provided artifacts detection status.
+     *
+     * @return true if provided dependencies are skipped.
+     */
+    public boolean isDetectProvided() {
+        return detectProvided;
+    }
+
+    /**
+     * Get the method used to test if a class exists in class loader.
+     *
+     * @return the class probe.
+     */
+    public ClassProbe getClassProbe() {
+        return classProbe;
+    }
+
+    /**
+     * Get the version overrides made by mediation on the last load, like
+     * "com.google.code.gson:gson:2.8.9 -&gt; 2.10.1".
+     *
+     * @return a list of overrides.
+     */
+    public List<String> getOverrides() {
+        return Collections.unmodifiableList(overrides);
+    }
+
+    /**
+     * Get the maximum number of concurrent fetches.
+     *
+     * @return the number of concurrent fetches used to download dependency files.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Get the number of repositories requested concurrently by hedged lookups.
+     *
+     * @return the number of repositories, 1 or less if hedged lookup is disabled.
+     */
+    public int getHedgeRepositories() {
+        return hedgeRepositories;
+    }
+
+    /**
+     * Get the delay between hedged requests.
+     *
+     * @return the delay in milliseconds.
+     */
+    public long getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    /**
+     * Get the executor used to fetch dependency files.
+     *
+     * @return an executor service or null if the loader creates its own.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
     /**
      * Get a reader for the provided file name.
      *
@@ -329,10 +613,10 @@ public class EzlibLoader {
                 final File file = new File(name);
                 return file.exists() ? new BufferedReader(new FileReader(file)) : null;
             case "url":
-                return new InputStreamReader(new BufferedInputStream(new URL(name).openConnection().getInputStream()));
+                return new InputStreamReader(new BufferedInputStream(openStream(new URL(name))));
             case "http":
             case "https":
-                return new InputStreamReader(new BufferedInputStream(new URL(type + ':' + name).openConnection().getInputStream()));
+                return new InputStreamReader(new BufferedInputStream(openStream(new URL(type + ':' + name))));
             case "input":
             case "inputstream":
                 final InputStream in = classLoader.getResourceAsStream(name);
@@ -342,6 +626,16 @@ public class EzlibLoader {
         }
     }
 
+    private InputStream openStream(URL url) throws IOException {
+        final Ezlib.Transport.Response response = ezlib.getTransport().request("GET", url, Collections.emptyMap());
+        try {
+            return response.validate(url).getBody();
+        } catch (IOException e) {
+            response.close();
+            throw e;
+        }
+    }
+
     /**
      * Get default reader for any type of file name.
      *
@@ -364,14 +658,12 @@ public class EzlibLoader {
         } else {
             logger.accept(4, "Ezlib is already initialized...");
         }
-        if (xmlParser == null) {
-            xmlParser = new XmlParser();
-        }
     }
 
     /**
      * Initialize all default options for this instance.
      */
+    @SuppressWarnings("unchecked")
     public void initDefaultOptions() {
         repositories.add(new Repository().name("MavenCentral").url("https://repo.maven.apache.org/maven2/"));
         repositories.add(new Repository().name("Jitpack").url("https://jitpack.io/"));
@@ -388,19 +680,28 @@ public class EzlibLoader {
                 java = Integer.parseInt(version);
             }
         }
-        conditions.put("java", Condition.valueOfInteger(() -> java));
-        conditions.put("java.version", Condition.valueOfInteger(() -> java));
+        conditions.put("java", Condition.valueOfInteger(() -> java).constant(true));
+        conditions.put("java.version", Condition.valueOfInteger(() -> java).constant(true));
 
         replaces.put("{}", ".");
         replaces.put("{package}", EzlibLoader.class.getPackage().getName());
+        replacer = null;
 
+        // Built-in readers, so loading files doesn't require any other library
         fileReaders.put("json", (reader, loader) -> {
             try {
-                final Class<?> clazz = Class.forName("com.google.gson.Gson");
-                final Object gson = clazz.getDeclaredConstructor().newInstance();
-                final Dependencies dependencies = (Dependencies) clazz.getDeclaredMethod("fromJson", Reader.class, Class.class)
-                        .invoke(gson, reader, Dependencies.class);
-                dependencies.load(loader);
+                final Object value = Json.read(reader);
+                if (!(value instanceof Map)) {
+                    throw new IOException("The dependencies file must be a JSON object");
+                }
+                Dependencies.valueOf((Map<String, Object>) value).load(loader);
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        });
+        fileReaders.put("ezlib", (reader, loader) -> {
+            try {
+                Dependencies.valueOf(Descriptor.read(reader)).load(loader);
             } catch (Throwable t) {
                 throw new RuntimeException(t);
             }
@@ -409,9 +710,11 @@ public class EzlibLoader {
             try {
                 final Class<?> clazz = Class.forName("org.yaml.snakeyaml.Yaml");
                 final Object yaml = clazz.getDeclaredConstructor().newInstance();
-                final Dependencies dependencies = (Dependencies) clazz.getDeclaredMethod("loadAs", Reader.class, Class.class)
-                        .invoke(yaml, reader, Dependencies.class);
-                dependencies.load(loader);
+                final Object value = clazz.getDeclaredMethod("load", Reader.class).invoke(yaml, reader);
+                if (!(value instanceof Map)) {
+                    throw new IOException("The dependencies file must be a YAML mapping");
+                }
+                Dependencies.valueOf((Map<String, Object>) value).load(loader);
             } catch (Throwable t) {
                 throw new RuntimeException(t);
             }
@@ -427,29 +730,201 @@ public class EzlibLoader {
      */
     public EzlibLoader load() {
         logger.accept(4, "Executing loader...");
-        // Load ezlib instance using the current class loader
-        init();
+        prepare();
 
-        // Load static fields from classes that override the current ezlib loader
-        loadClass();
+        // Append the previously resolved dependencies if the loaded information doesn't change
+        final String lockKey = lockFile == null ? null : lockKey();
+        DependencyGraph graph = lockKey == null ? null : readLock(lockKey);
+        if (graph != null) {
+            logger.accept(3, "Applying " + graph.getNodes().size() + " locked dependenc" + (graph.getNodes().size() == 1 ? "y" : "ies") + "...");
+            try {
+                return execute(graph);
+            } catch (RuntimeException e) {
+                // A locked file may be replaced on repository, like a rebuilt tag, so the lock file is not valid anymore
+                logger.accept(2, "Cannot apply locked dependencies, so will be resolved again: " + e.getMessage());
+                deleteLock();
+            }
+        }
 
-        // Load files from JAR, folders or url
+        begin();
+        try {
+            graph = resolveGraph(lockKey);
+            execute(graph);
+            // Don't lock partial results, so the optional dependencies will be resolved again on next load
+            if (lockKey != null && !partial) {
+                saveLock(checksum(graph));
+            }
+        } finally {
+            end();
+        }
+        // Return the loader itself
+        return this;
+    }
+
+    /**
+     * Load all the needed information and resolve the dependency graph without downloading or appending
+     * any dependency jar file, so the graph can be saved and executed later.<br>
+     * Take in count the pom and maven-metadata.xml files of transitive dependencies are downloaded into
+     * dependencies folder to resolve the graph, the repository misses, statistics and file checksums are saved
+     * into cache folder, and the dependency conditions and class tests are evaluated while the graph is created.
+     *
+     * @return a resolved dependency graph.
+     */
+    public DependencyGraph plan() {
+        logger.accept(4, "Planning loader...");
+        // The ezlib instance is not initialized because nothing is appended into class loader
+        loadClass();
         loadFiles();
+        begin();
+        try {
+            return resolveGraph(lockKey());
+        } finally {
+            end();
+        }
+    }
 
-        // Apply all loaded dependencies using global parameters
+    /**
+     * Download and append into class loader the dependencies from provided graph.
+     *
+     * @param graph the dependency graph to execute.
+     * @return      the current ezlib loader.
+     */
+    public EzlibLoader execute(DependencyGraph graph) {
+        init();
         logger.accept(3, "Applying all dependencies...");
+        begin();
         int count = 0;
-        // Avoid ConcurrentModificationException
-        for (int i = 0; i < dependencies.size(); i++) {
-            if (applyDependency(dependencies.get(i))) {
-                count++;
+        try {
+            partial = false;
+            // Global relocations are already applied, so only the graph differences are added into every node
+            final Map<String, String> relocations = new HashMap<>();
+            for (Map.Entry<String, String> entry : graph.getRelocations().entrySet()) {
+                if (!entry.getValue().equals(this.relocations.get(entry.getKey()))) {
+                    relocations.put(entry.getKey(), entry.getValue());
+                }
             }
+            final List<Dependency> list = new ArrayList<>();
+            for (DependencyGraph.Node node : graph.getNodes()) {
+                list.add(node.asDependency(relocations));
+                // Downloaded files will be compared with the resolved checksum
+                if (node.sha1 != null || node.size > 0) {
+                    pinned.put(node.path, node);
+                }
+            }
+            // Download files concurrently, so the dependencies are appended in resolved order
+            prefetch(list);
+            for (int i = 0; i < list.size(); i++) {
+                final DependencyGraph.Node node = graph.getNodes().get(i);
+                if (applyDependency(list.get(i))) {
+                    // Save the requested dependency too, like version paths
+                    if (node.getRequested() != null) {
+                        applied.add(Dependency.valueOf(node.getRequested()).relocate(list.get(i).relocate));
+                    }
+                    count++;
+                }
+            }
+        } finally {
+            end();
         }
         logger.accept(3, "Applied " + count + " dependenc" + (count == 1 ? "y" : "ies"));
-        // Return the loader itself
         return this;
     }
 
+    /**
+     * Download the dependencies from provided graph without appending them into class loader,
+     * and return a copy of the graph with the repository, checksum and size of every downloaded file.<br>
+     * A pinned graph can be executed on a different environment without looking up repositories,
+     * and any file that doesn't match the saved checksum will be rejected.
+     *
+     * @param graph the dependency graph to pin.
+     * @return      a dependency graph with file information.
+     * @throws IOException if a required dependency cannot be downloaded.
+     */
+    public DependencyGraph pin(DependencyGraph graph) throws IOException {
+        logger.accept(3, "Pinning " + graph.getNodes().size() + " dependenc" + (graph.getNodes().size() == 1 ? "y" : "ies") + "...");
+        begin();
+        try {
+            final List<DependencyGraph.Node> nodes = new ArrayList<>();
+            for (DependencyGraph.Node node : graph.getNodes()) {
+                final Dependency dependency = node.asDependency(Collections.emptyMap());
+                final Ezlib.Coordinate path = Ezlib.Coordinate.of(node.path);
+                DependencyGraph.Node result = null;
+                for (Repository repository : lookupRepositories(dependency)) {
+                    final File file;
+                    try {
+                        file = download(path, repository, "jar");
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    result = node.pin(repository.url, repository.format, relativize(file), ezlib.checksum(file), file.length());
+                    break;
+                }
+                if (result == null) {
+                    if (!node.optional) {
+                        throw new IOException("Cannot download dependency " + node.path + " from loaded repositories");
+                    }
+                    logger.accept(1, "Cannot pin optional dependency " + node.path + ", so will be looked up while executing");
+                    result = node;
+                }
+                nodes.add(result);
+            }
+            return new DependencyGraph(graph.getKey(), graph.getRelocations(), nodes, graph.getOverrides());
+        } finally {
+            end();
+        }
+    }
+
+    private void prepare() {
+        // Load ezlib instance using the current class loader
+        init();
+
+        // Load static fields from classes that override the current ezlib loader
+        loadClass();
+
+        // Load files from JAR, folders or url
+        loadFiles();
+    }
+
+    private void begin() {
+        if (session++ > 0) {
+            return;
+        }
+        createdScheduler = executor == null && parallelism > 1 ? Executors.newFixedThreadPool(parallelism, threadFactory("ezlib-loader-")) : null;
+        scheduler = createdScheduler != null ? createdScheduler : executor;
+        hedger = hedgeRepositories > 1 ? Executors.newCachedThreadPool(threadFactory("ezlib-hedge-")) : null;
+        misses = missExpiration > 0 ? loadMisses() : null;
+        // Measure every request made to loaded repositories
+        if (rankRepositories) {
+            loadStats();
+            transport = measure(ezlib.getTransport());
+        }
+    }
+
+    private void end() {
+        if (--session > 0) {
+            return;
+        }
+        if (misses != null) {
+            saveMisses(misses);
+            misses = null;
+        }
+        if (rankRepositories) {
+            saveStats();
+        }
+        ezlib.saveChecksums();
+        transport = null;
+        scheduler = null;
+        if (createdScheduler != null) {
+            createdScheduler.shutdownNow();
+            createdScheduler = null;
+        }
+        if (hedger != null) {
+            hedger.shutdownNow();
+            hedger = null;
+        }
+        metadata.clear();
+    }
+
     /**
      * Load all the needed information from current files.
      */
@@ -661,15 +1136,24 @@ public class EzlibLoader {
      *
      * @param pom the pom document to read.
      * @return    true if at least one repository was loaded into memory.
+     * @deprecated use {@link #loadRepositories(Pom)} instead.
      */
+    @Deprecated
     public boolean loadRepositories(Document pom) {
-        // Document path: repositories.repository.url
-        Element element = pom.getDocumentElement();
+        return loadRepositories(Pom.valueOf(pom));
+    }
+
+    /**
+     * Load provided repositories from pom into ezlib loader.
+     *
+     * @param pom the pom to read.
+     * @return    true if at least one repository was loaded into memory.
+     */
+    public boolean loadRepositories(Pom pom) {
         int count = 0;
-        for (Element repository : xmlParser.getElements(element, "repository", "repositories")) {
-            String url = xmlParser.getTextContent(element, repository, "url");
-            if (url != null) {
-                if (loadRepository(new Repository().url(url))) {
+        for (String url : pom.getRepositories()) {
+            if (!url.isEmpty()) {
+                if (loadRepository(new Repository().url(pom.interpolate(url)))) {
                     count++;
                 }
             }
@@ -688,32 +1172,22 @@ public class EzlibLoader {
         if (dependency == null) {
             return false;
         }
-        dependency.path = parse(dependency.path);
+        dependency.path(parse(dependency.path));
         // Remove invalid repository
         if (dependency.repository != null && !dependency.repository.isValid()) {
             dependency.repository = null;
         }
-        dependency.relocate = parse(dependency.relocate);
-        if (dependency.relocate != null) {
+        final Map<String, String> relocate = parse(dependency.relocate);
+        if (relocate != null) {
             // Remove duplicated relocations
-            for (Map.Entry<String, String> entry : this.relocations.entrySet()) {
-                if (Objects.equals(entry.getValue(), dependency.relocate.get(entry.getKey()))) {
-                    dependency.relocate.remove(entry.getKey());
-                }
-            }
-            if (dependency.relocate.isEmpty()) {
-                dependency.relocate = null;
-            }
+            relocate.entrySet().removeIf(entry -> this.relocations.containsKey(entry.getKey()) && Objects.equals(entry.getValue(), this.relocations.get(entry.getKey())));
         }
+        dependency.relocate(relocate == null || relocate.isEmpty() ? null : relocate);
         // Add repository to loaded repositories
         if (dependency.repository != null && dependency.repository.url != null) {
             loadRepository(dependency.repository);
         }
-        if (!this.dependencies.contains(dependency)) {
-            this.dependencies.add(dependency);
-            return true;
-        }
-        return false;
+        return this.dependencies.add(dependency);
     }
 
     /**
@@ -770,6 +1244,22 @@ public class EzlibLoader {
         return true;
     }
 
+    /**
+     * Load provided resolved graph into ezlib loader.<br>
+     * The graph nodes are appended before any other loaded dependency without reading pom files again.
+     *
+     * @param graph the resolved graph to load, can be null.
+     * @return      true if the graph was loaded into memory.
+     */
+    public boolean loadGraph(DependencyGraph graph) {
+        if (graph == null || graph.getNodes().isEmpty()) {
+            return false;
+        }
+        this.graphs.add(graph);
+        logger.accept(4, "Loaded resolved graph with " + graph.getNodes().size() + " dependenc" + (graph.getNodes().size() == 1 ? "y" : "ies"));
+        return true;
+    }
+
     /**
      * Apply provided dependency into class loader.
      *
@@ -787,6 +1277,10 @@ public class EzlibLoader {
             logger.accept(4, "The dependency doesn't need to be loaded");
             return false;
         }
+        if (isProvided(dependency)) {
+            applied.add(dependency);
+            return true;
+        }
         logger.accept(3, "Loading dependency " + dependency.path);
 
         // Create full relocation map using global and dependency relocations
@@ -795,45 +1289,44 @@ public class EzlibLoader {
             relocations.putAll(dependency.relocate);
         }
 
-        Repository repo = null;
+        // Find repository url and format checking if dependency has repository url or name to get from global repositories
+        final boolean shouldExist = dependency.mainRepository(this) != null;
+        final List<Repository> repositories = shouldExist ? lookupRepositories(dependency) : hedge(dependency, lookupRepositories(dependency));
+        final Repository repo = repositories.get(0);
+        missSkipped = false;
         try {
-            // Find repository url and format checking if dependency has repository url or name to get from global repositories
-            repo = dependency.mainRepository(this);
-            boolean shouldExist = repo != null;
-            if (!shouldExist) {
-                // Use first repository
-                for (Repository r : this.repositories) {
-                    repo = r;
-                    break;
-                }
-                // Use default repository
-                if (repo == null) {
-                    new Repository().url(this.ezlib.getDefaultRepository());
-                }
-            }
-            logger.accept(4, "Using repository " + repo);
-            // Try to apply dependency using explicit repository
-            if (applyDependency(dependency, repo, relocations, shouldExist)) {
-                return true;
-            }
-
-            logger.accept(4, "Cannot find dependency from repository, so will be lookup over loaded repositories");
-            // Avoid ConcurrentModificationException
             for (int i = 0; i < repositories.size(); i++) {
                 final Repository repository = repositories.get(i);
-                // Avoid repeated repo
-                if (repository.equals(repo)) {
-                    continue;
+                if (i == 0) {
+                    logger.accept(4, "Using repository " + repository);
+                } else if (i == 1) {
+                    logger.accept(4, "Cannot find dependency from repository, so will be lookup over loaded repositories");
                 }
-                if (applyDependency(dependency, repository, relocations)) {
+                // Try to apply dependency using explicit repository first
+                if (applyDependency(dependency, repository, relocations, i == 0 && shouldExist)) {
                     return true;
                 }
             }
+            // The dependency may be uploaded after the repository misses were saved
+            if (missSkipped) {
+                logger.accept(4, "Cannot find dependency from loaded repositories, so will be lookup again ignoring the known misses");
+                skipMisses = false;
+                try {
+                    for (Repository repository : repositories) {
+                        if (applyDependency(dependency, repository, relocations, false)) {
+                            return true;
+                        }
+                    }
+                } finally {
+                    skipMisses = true;
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
 
         if (dependency.optional) {
+            partial = true;
             logger.accept(1, "Cannot load optional dependency " + dependency.path + " from " + repo + " or loaded repositories");
             return false;
         }
@@ -862,18 +1355,24 @@ public class EzlibLoader {
      * @return            true if dependency was applied correctly.
      */
     public boolean applyDependency(Dependency dependency, Repository repository, Map<String, String> relocations, boolean shouldExist) {
-        final String[] path = dependency.path.split(":");
+        Ezlib.Coordinate path = Ezlib.Coordinate.of(dependency.path);
         // Check if dependency uses version path and get it from maven metadata
         Dependency modified = null;
-        if (path[2].charAt(0) == '@' && parseVersionPath(path, repository.url, shouldExist)) {
-            modified = Dependency.valueOf(String.join(":", path)).relocate(dependency.relocate);
+        if (path.isVersionPath()) {
+            final Ezlib.Coordinate version = parseVersionPath(path, repository, shouldExist);
+            if (version != null) {
+                path = version;
+                modified = Dependency.valueOf(path.getPath()).relocate(dependency.relocate);
+            }
         }
         // Check if dependency is snapshot to get file version from maven metadata
         final boolean lookSnapshot = dependency.snapshot;
-        final boolean hasFileVersion = path[2].indexOf('@') > 0;
+        final boolean hasFileVersion = path.hasFileVersion();
         if (lookSnapshot && !hasFileVersion) {
-            if (parseSnapshot(path, repository.url, shouldExist)) {
-                modified = Dependency.valueOf(String.join(":", path)).relocate(dependency.relocate);
+            final Ezlib.Coordinate snapshot = parseSnapshot(path, repository, shouldExist);
+            if (snapshot != null) {
+                path = snapshot;
+                modified = Dependency.valueOf(path.getPath()).relocate(dependency.relocate);
             } else {
                 logger.accept(2, "Dependency is marked has snapshot, but cannot find snapshot version from repository: " + repository);
             }
@@ -889,15 +1388,17 @@ public class EzlibLoader {
         File file;
         try {
             // Try to download or use pre-downloaded JAR
-            file = ezlib.download(String.join(":", path), repository.url, repository.format.replace("%fileType%", "jar"));
+            file = download(path, repository, "jar");
         } catch (IOException e) {
             if (lookSnapshot || hasFileVersion) {
                 logger.accept(4, "Cannot find dependency from " + repository.url);
                 return false;
             }
             // Try to find snapshot if isn't configured previously
-            if (parseSnapshot(path, repository.url, false)) {
-                modified = Dependency.valueOf(String.join(":", path)).relocate(dependency.relocate);
+            final Ezlib.Coordinate snapshot = parseSnapshot(path, repository, false);
+            if (snapshot != null) {
+                path = snapshot;
+                modified = Dependency.valueOf(path.getPath()).relocate(dependency.relocate);
                 // Ignore modified dependency if it was applied before
                 if (applied.contains(modified)) {
                     logger.accept(4, "The dependency " + modified.path + " is already applied into class loader");
@@ -905,7 +1406,7 @@ public class EzlibLoader {
                 }
                 try {
                     // If snapshot is found try to re-download
-                    file = ezlib.download(String.join(":", path), repository.url, repository.format.replace("%fileType%", "jar"));
+                    file = download(path, repository, "jar");
                 } catch (IOException ex) {
                     logger.accept(4, "Cannot find dependency from " + repository);
                     return false;
@@ -919,6 +1420,8 @@ public class EzlibLoader {
         // Append dependency to inner or parent class loader
         try {
             ezlib.dependency(file).relocations(relocations).parent(!dependency.inner).load();
+            // Missing classes can exist now
+            classes.clear();
         } catch (Throwable t) {
             throw new RuntimeException("Cannot load dependency " + dependency.path + " into class loader after download", t);
         }
@@ -939,22 +1442,22 @@ public class EzlibLoader {
         // Download dependency pom file or use the downloaded one to read information about the current dependency version
         File pom;
         try {
-            pom = ezlib.download(String.join(":", path), repository.url, repository.format.replace("%fileType%", "pom"));
+            pom = download(path, repository, "pom");
         } catch (IOException e) {
             logger.accept(4, "Cannot load pom file");
             // Return true because the dependency was loaded correctly
             return true;
         }
         // Parse pom file as xml
-        Document pomDocument;
+        Pom pomModel;
         try {
-            pomDocument = xmlParser.fromFile(pom);
-        } catch (IOException | SAXException e) {
+            pomModel = Pom.read(pom);
+        } catch (IOException e) {
             new RuntimeException("Cannot read pom file of '" + dependency.path + "' as XML document", e).printStackTrace();
             return true;
         }
         // Download only sub dependencies (using optional comparator and exclusions)
-        applyDependency(dependency, repository, pomDocument);
+        applyDependency(dependency, repository, pomModel);
         return true;
     }
 
@@ -964,41 +1467,69 @@ public class EzlibLoader {
      * @param dependency the parent dependency.
      * @param repository the main repository to download sub dependencies.
      * @param pom        the pom document with sub dependencies.
+     * @deprecated use {@link #applyDependency(Dependency, Repository, Pom)} instead.
      */
+    @Deprecated
     public void applyDependency(Dependency dependency, Repository repository, Document pom) {
+        applyDependency(dependency, repository, pom == null ? null : Pom.valueOf(pom));
+    }
+
+    /**
+     * Apply the subdependencies from provided pom using dependency information and defined repository.
+     *
+     * @param dependency the parent dependency.
+     * @param repository the main repository to download sub dependencies.
+     * @param pom        the pom with sub dependencies.
+     */
+    public void applyDependency(Dependency dependency, Repository repository, Pom pom) {
         if (pom == null) {
             logger.accept(4, "Cannot parse pom file");
             return;
         }
 
         logger.accept(4, "Applying sub-dependencies using pom file...");
-        loadRepositories(pom);
-
         int count = 0;
-        Element element = pom.getDocumentElement();
-        // Document path: dependencies.dependency[]
-        for (Element eDependency : xmlParser.getElements(element, "dependency", "dependencies")) {
-            // Parse dependency path
-            String path = parsePath(element, eDependency, false);
-            if (path == null) {
-                logger.accept(4, "The sub-dependency " + (count + 1) + " contains invalid parameters");
-                continue;
-            }
-            // Avoid invalid scopes
-            String scope = xmlParser.getTextContentOrDefault(element, eDependency, "compile", "scope");
+        final List<Dependency> subDependencies = subDependencies(dependency, repository, pom);
+
+        // Download sub-dependencies files concurrently before apply them in pom order
+        prefetch(subDependencies);
+        for (Dependency dep : subDependencies) {
+            logger.accept(4, "Trying to apply sub-dependency " + dep.path + " from pom");
+            if (applyDependency(dep)) {
+                count++;
+            }
+        }
+        logger.accept(4, "Applied " + count + " sub-dependenc" + (count == 1 ? "y" : "ies") + " from pom");
+    }
+
+    private List<Dependency> subDependencies(Dependency dependency, Repository repository, Pom pom) {
+        loadRepositories(pom);
+        // Resolve parent and imported poms to get inherited dependencies and managed versions
+        resolvePom(pom, repository, new HashSet<>());
+
+        final List<Dependency> subDependencies = new ArrayList<>();
+        for (Pom.Artifact artifact : pom.getEffectiveDependencies()) {
+            // Parse dependency path
+            String path = parsePath(pom, artifact, false);
+            if (path == null) {
+                logger.accept(4, "The sub-dependency " + (subDependencies.size() + 1) + " contains invalid parameters");
+                continue;
+            }
+            // Avoid invalid scopes
+            String scope = artifact.getScope() == null ? "compile" : pom.interpolate(artifact.getScope());
             if (!dependency.isValidScope(scope)) {
                 logger.accept(4, "The sub-dependency " + path + " scope '" + scope + "' doesn't match with dependency scopes, so will be ignored");
                 continue;
             }
             // Avoid excluded or optional dependencies
-            if (dependency.isExcluded(path) || (!dependency.loadOptional && xmlParser.getTextContentOrDefault(element, eDependency, "false", "optional").equals("true"))) {
+            if (dependency.isExcluded(path) || (!dependency.loadOptional && artifact.isOptional())) {
                 logger.accept(4, "The sub-dependency " + path + " don't need to be loaded");
                 continue;
             }
             // Get exclusions from sub-dependency
             Set<String> exclusions = new HashSet<>();
-            for (Element exclusion : xmlParser.getElements(eDependency, "exclusion", "exclusions")) {
-                String excludedPath = parsePath(element, exclusion, true);
+            for (Pom.Artifact exclusion : artifact.getExclusions()) {
+                String excludedPath = parsePath(pom, exclusion, true);
                 if (excludedPath != null) {
                     exclusions.add(excludedPath);
                 }
@@ -1014,18 +1545,371 @@ public class EzlibLoader {
                 continue;
             }
             // Add inherited parameters
-            dep.repository(repository).inner(dependency.inner).optional(dependency.optional).scopes(dependency.scopes).exclude(dependency.exclude);
-            if (dep.exclude != null) {
-                dep.exclude.addAll(exclusions);
-            } else if (!exclusions.isEmpty()) {
+            dep.repository(repository).inner(dependency.inner).optional(dependency.optional).scopes(dependency.scopes);
+            if (dependency.exclude != null) {
+                exclusions.addAll(dependency.exclude);
+            }
+            if (!exclusions.isEmpty()) {
                 dep.exclude(exclusions);
             }
-            logger.accept(4, "Trying to apply sub-dependency " + path + " from pom");
-            if (applyDependency(dep)) {
-                count++;
+            subDependencies.add(dep);
+        }
+        return subDependencies;
+    }
+
+    private List<GraphNode> resolve(Collection<Dependency> dependencies) {
+        logger.accept(4, "Resolving dependency graph...");
+        overrides.clear();
+        final Map<Dependency, GraphNode> nodes = new LinkedHashMap<>();
+        final Map<String, GraphNode> selected = new HashMap<>();
+        final List<GraphNode> roots = new ArrayList<>();
+        for (Dependency dependency : dependencies) {
+            if (dependency.path == null || nodes.containsKey(dependency) || applied.contains(dependency)) {
+                continue;
+            }
+            if (dependency.meetTest(this) || !eval(dependency.condition)) {
+                logger.accept(4, "The dependency " + dependency.path + " doesn't need to be loaded");
+                continue;
+            }
+            if (isProvided(dependency)) {
+                continue;
+            }
+            final GraphNode node = new GraphNode(mediation, dependency, 0);
+            nodes.put(dependency, node);
+            roots.add(node);
+        }
+
+        // Breadth-first, so the depth of every node is the nearest one
+        List<GraphNode> level = roots;
+        while (!level.isEmpty()) {
+            final List<GraphNode> expand;
+            if (mediation == Mediation.NEAREST) {
+                // The artifacts already required by a nearest node are not expanded, so their pom is not needed
+                expand = new ArrayList<>();
+                for (GraphNode node : level) {
+                    if (selected.putIfAbsent(node.key(), node) == null) {
+                        expand.add(node);
+                    }
+                }
+            } else {
+                expand = level;
+            }
+            resolve(expand);
+            final List<GraphNode> next = new ArrayList<>();
+            for (GraphNode node : expand) {
+                if (mediation == Mediation.NONE) {
+                    selected.put(node.key(), node);
+                }
+                if (node.pom == null) {
+                    continue;
+                }
+                for (Dependency dependency : subDependencies(node.dependency, node.repository, node.pom)) {
+                    GraphNode child = nodes.get(dependency);
+                    if (child == null) {
+                        if (isProvided(dependency)) {
+                            continue;
+                        }
+                        child = new GraphNode(mediation, dependency, node.depth + 1);
+                        nodes.put(dependency, child);
+                        next.add(child);
+                    }
+                    node.children.add(child);
+                }
             }
+            level = next;
+        }
+
+        if (mediation == Mediation.HIGHEST) {
+            for (GraphNode node : nodes.values()) {
+                final GraphNode current = selected.get(node.key());
+                if (current == null || compareVersions(node.version(), current.version()) > 0) {
+                    selected.put(node.key(), node);
+                }
+            }
+        }
+
+        // Pre-order traversal using the selected nodes, so dependencies keep the declaration order
+        final List<GraphNode> result = new ArrayList<>();
+        final Set<GraphNode> visited = new HashSet<>();
+        final Deque<GraphNode> stack = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(roots.get(i));
+        }
+        while (!stack.isEmpty()) {
+            final GraphNode node = selected.getOrDefault(stack.pop().key(), null);
+            if (node == null || !visited.add(node)) {
+                continue;
+            }
+            result.add(node);
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                stack.push(node.children.get(i));
+            }
+        }
+
+        // Report overrides
+        final Set<String> reported = new HashSet<>();
+        for (GraphNode node : nodes.values()) {
+            final GraphNode winner = selected.get(node.key());
+            if (winner != null && winner != node && !Objects.equals(winner.version(), node.version())) {
+                final String override = node.getPath() + " -> " + winner.version();
+                if (reported.add(override)) {
+                    overrides.add(override);
+                    logger.accept(3, "Version conflict: " + override + (mediation == Mediation.NEAREST ? " (nearest)" : " (highest)"));
+                }
+            }
+        }
+        logger.accept(4, "Resolved " + result.size() + " of " + nodes.size() + " dependenc" + (nodes.size() == 1 ? "y" : "ies") + " with " + overrides.size() + " override" + (overrides.size() == 1 ? "" : "s"));
+        return result;
+    }
+
+    private void resolve(List<GraphNode> nodes) {
+        final ExecutorService scheduler = this.scheduler;
+        if (scheduler == null || nodes.size() < 2) {
+            for (GraphNode node : nodes) {
+                resolve(node);
+            }
+            return;
+        }
+        // Pom files are downloaded concurrently, the graph is expanded by the current thread
+        final List<Future<?>> futures = new ArrayList<>();
+        for (GraphNode node : nodes) {
+            futures.add(scheduler.submit(() -> resolve(node)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+                return;
+            } catch (ExecutionException e) {
+                // The node will be applied without resolved information
+                logger.accept(2, "Cannot resolve dependency " + nodes.get(i).dependency.path + ": " + e.getCause());
+            }
+        }
+    }
+
+    private void resolve(GraphNode node) {
+        final Dependency dependency = node.dependency;
+        // Non transitive dependencies don't need pom information
+        if (!dependency.transitive) {
+            return;
+        }
+        final Ezlib.Coordinate coordinate;
+        try {
+            coordinate = Ezlib.Coordinate.of(dependency.path);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        for (Repository repository : lookupRepositories(dependency)) {
+            Ezlib.Coordinate path = coordinate;
+            if (path.isVersionPath() && (path = parseVersionPath(path, repository, false)) == null) {
+                continue;
+            }
+            if (dependency.snapshot && !path.hasFileVersion() && (path = parseSnapshot(path, repository, false)) == null) {
+                continue;
+            }
+            final File file;
+            try {
+                file = download(path, repository, "pom");
+            } catch (IOException | IllegalArgumentException e) {
+                continue;
+            }
+            try {
+                final Pom pom = Pom.read(file);
+                resolvePom(pom, repository, new HashSet<>());
+                node.pom = pom;
+            } catch (IOException e) {
+                logger.accept(2, "Cannot read pom file of '" + dependency.path + "': " + e.getMessage());
+                return;
+            }
+            node.repository = repository;
+            node.path = path.getPath();
+            return;
+        }
+        // Dependency without pom, it will be looked up again when is applied
+    }
+
+    private DependencyGraph resolveGraph(String key) {
+        final List<GraphNode> resolved = resolve(dependencies);
+        final Map<String, String> paths = new HashMap<>();
+        for (GraphNode node : resolved) {
+            paths.put(node.key(), node.getPath());
+        }
+        final List<DependencyGraph.Node> nodes = new ArrayList<>();
+        // Loaded graphs are already resolved, so they are appended first
+        final Set<String> included = new HashSet<>();
+        for (DependencyGraph graph : graphs) {
+            // The graph can be resolved on a different environment, so relocations are parsed
+            // with the current replacements and the loaded relocations take precedence
+            final Map<String, String> relocations = new HashMap<>();
+            for (Map.Entry<String, String> entry : parse(graph.getRelocations()).entrySet()) {
+                if (!this.relocations.containsKey(entry.getKey())) {
+                    relocations.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (DependencyGraph.Node node : graph.getNodes()) {
+                if (!included.add(node.path)) {
+                    continue;
+                }
+                final Map<String, String> relocate = new HashMap<>(relocations);
+                if (node.relocate != null) {
+                    relocate.putAll(parse(node.relocate));
+                }
+                relocate.entrySet().removeIf(entry -> entry.getValue().equals(this.relocations.get(entry.getKey())));
+                nodes.add(node.relocate(relocate));
+            }
+        }
+        for (GraphNode node : resolved) {
+            if (included.contains(node.getPath())) {
+                continue;
+            }
+            final Dependency dependency = node.dependency;
+            // Edges point to the selected version of every sub-dependency
+            final List<String> edges = new ArrayList<>();
+            for (GraphNode child : node.children) {
+                final String path = paths.get(child.key());
+                if (path != null && !edges.contains(path)) {
+                    edges.add(path);
+                }
+            }
+            // Unresolved dependencies keep the explicit repository, if any
+            final Repository repository = node.repository != null ? node.repository : dependency.mainRepository(this);
+            String file = null;
+            if (node.pom != null) {
+                try {
+                    file = relativize(ezlib.getFile(Ezlib.Coordinate.of(node.getPath()), repository.urlFormat(), "jar"));
+                } catch (IllegalArgumentException ignored) { }
+            }
+            nodes.add(new DependencyGraph.Node(
+                    node.getPath(),
+                    node.pom != null && !node.path.equals(dependency.path) ? dependency.path : null,
+                    repository == null ? null : repository.url,
+                    repository == null ? null : repository.format,
+                    file,
+                    dependency.relocate,
+                    dependency.inner,
+                    dependency.optional,
+                    node.pom == null && dependency.transitive,
+                    node.pom == null && dependency.snapshot,
+                    dependency.scopes,
+                    dependency.exclude,
+                    edges
+            ));
+        }
+        return new DependencyGraph(key, relocations, nodes, overrides);
+    }
+
+    private DependencyGraph checksum(DependencyGraph graph) {
+        // Save the checksum of appended files, so they are verified on next load
+        final List<DependencyGraph.Node> nodes = new ArrayList<>();
+        for (DependencyGraph.Node node : graph.getNodes()) {
+            final File file = downloads.get(node.path);
+            if (node.sha1 == null && file != null && file.isFile()) {
+                try {
+                    nodes.add(node.pin(node.repository, node.format, relativize(file), ezlib.checksum(file), file.length()));
+                    continue;
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.accept(2, "Cannot calculate checksum of " + file + ": " + e.getMessage());
+                }
+            }
+            nodes.add(node);
+        }
+        return new DependencyGraph(graph.getKey(), graph.getRelocations(), nodes, graph.getOverrides());
+    }
+
+    private String relativize(File file) {
+        return ezlib.getFolder().toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private String lockKey() {
+        // Any change on loaded information or class tests will invalidate the lock file
+        final StringBuilder builder = new StringBuilder(Ezlib.VERSION).append('\n');
+        for (Repository repository : repositories) {
+            builder.append(repository.name).append(' ').append(repository.url).append(' ').append(repository.format).append(' ').append(repository.allowInsecureProtocol).append(' ').append(repository.include == null ? null : new TreeSet<>(repository.include)).append('\n');
+        }
+        builder.append(new TreeMap<>(relocations)).append(' ').append(mediation).append('\n');
+        if (detectProvided) {
+            builder.append(new TreeMap<>(getProvidedArtifacts())).append('\n');
+        }
+        for (DependencyGraph graph : graphs) {
+            builder.append(new TreeMap<>(graph.getRelocations()));
+            for (DependencyGraph.Node node : graph.getNodes()) {
+                builder.append(' ').append(node.path).append(' ').append(node.repository).append(' ').append(node.sha1);
+            }
+            builder.append('\n');
+        }
+        for (Dependency dependency : dependencies) {
+            builder.append(dependency.path)
+                    .append(' ').append(dependency.repository == null ? null : dependency.repository.name + ' ' + dependency.repository.url)
+                    .append(' ').append(dependency.inner)
+                    .append(' ').append(dependency.transitive)
+                    .append(' ').append(dependency.snapshot)
+                    .append(' ').append(dependency.loadOptional)
+                    .append(' ').append(dependency.optional)
+                    .append(' ').append(dependency.scopes == null ? null : new TreeSet<>(dependency.scopes))
+                    .append(' ').append(dependency.exclude == null ? null : new TreeSet<>(dependency.exclude))
+                    .append(' ').append(dependency.relocate == null ? null : new TreeMap<>(dependency.relocate))
+                    .append(' ').append(dependency.meetTest(this) || !eval(dependency.condition))
+                    .append('\n');
+        }
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return Ezlib.toHex(digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private DependencyGraph readLock(String key) {
+        if (!lockFile.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(lockFile), StandardCharsets.UTF_8)) {
+            final Map<String, Object> map = (Map<String, Object>) Json.read(reader);
+            if (!(map.get("version") instanceof Number) || ((Number) map.get("version")).intValue() != LOCK_VERSION || !key.equals(map.get("key"))) {
+                logger.accept(4, "The lock file is outdated, so dependencies will be resolved again");
+                return null;
+            }
+            return DependencyGraph.valueOf(map);
+        } catch (Throwable t) {
+            logger.accept(2, "Cannot read lock file " + lockFile + ": " + t.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteLock() {
+        // Locked checksums must not be compared with the files of a new resolved graph
+        pinned.clear();
+        try {
+            Files.deleteIfExists(lockFile.toPath());
+        } catch (IOException e) {
+            logger.accept(2, "Cannot delete lock file " + lockFile + ": " + e.getMessage());
+        }
+    }
+
+    private void saveLock(DependencyGraph graph) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("version", LOCK_VERSION);
+        map.putAll(graph.asMap());
+        try {
+            final File parent = lockFile.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            final File temp = new File(lockFile.getPath() + ".tmp");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                Json.write(map, writer);
+            }
+            Files.move(temp.toPath(), lockFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            final int size = graph.getNodes().size();
+            logger.accept(4, "Saved " + size + " resolved dependenc" + (size == 1 ? "y" : "ies") + " into lock file");
+        } catch (IOException e) {
+            logger.accept(2, "Cannot save lock file " + lockFile + ": " + e.getMessage());
         }
-        logger.accept(4, "Applied " + count + " sub-dependenc" + (count == 1 ? "y" : "ies") + " from pom");
     }
 
     /**
@@ -1038,31 +1922,196 @@ public class EzlibLoader {
     }
 
     /**
-     * Test if the provided class exists in class loader.
+     * Get the artifacts provided by parent class loader, found from maven information inside every jar.<br>
+     * The class path is scanned once per loader.
+     *
+     * @return an unmodifiable map with "group:artifact" as key and version as value.
+     */
+    public Map<String, String> getProvidedArtifacts() {
+        Map<String, String> provided = this.provided;
+        if (provided == null) {
+            provided = Collections.unmodifiableMap(scanProvided());
+            this.provided = provided;
+        }
+        return provided;
+    }
+
+    private boolean isProvided(Dependency dependency) {
+        // Relocated or inner dependencies must be appended anyway
+        if (!detectProvided || dependency.inner || !relocations.isEmpty() || (dependency.relocate != null && !dependency.relocate.isEmpty())) {
+            return false;
+        }
+        final Ezlib.Coordinate coordinate;
+        try {
+            coordinate = Ezlib.Coordinate.of(dependency.path);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final String version = getProvidedArtifacts().get(coordinate.getId());
+        if (version == null) {
+            return false;
+        }
+        // Any version satisfies a version path, otherwise the provided version must be the same major or newer
+        final String required = coordinate.getVersion();
+        if (!coordinate.isVersionPath() && (!major(version).equals(major(required)) || compareVersions(version, required) < 0)) {
+            logger.accept(4, "The dependency " + dependency.path + " is provided with incompatible version " + version);
+            return false;
+        }
+        logger.accept(3, "The dependency " + dependency.path + " is provided by parent class loader with version " + version);
+        return true;
+    }
+
+    private static String major(String version) {
+        int end = 0;
+        while (end < version.length() && Character.isDigit(version.charAt(end))) {
+            end++;
+        }
+        return version.substring(0, end);
+    }
+
+    private Map<String, String> scanProvided() {
+        final Map<String, String> provided = new HashMap<>();
+        ClassLoader classLoader = ezlib.getParentClassLoader();
+        if (classLoader == null) {
+            classLoader = this.classLoader;
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            // Every jar or folder in class path should have a manifest
+            final Enumeration<URL> manifests = classLoader.getResources("META-INF/MANIFEST.MF");
+            while (manifests.hasMoreElements()) {
+                final URL url = manifests.nextElement();
+                try {
+                    if (url.getProtocol().equals("jar")) {
+                        final String path = url.getPath();
+                        final int index = path.indexOf("!/");
+                        if (index > 0) {
+                            scanProvided(new File(new URL(path.substring(0, index)).toURI()), provided);
+                        }
+                    } else if (url.getProtocol().equals("file")) {
+                        scanProvided(new File(new File(url.toURI()).getParentFile(), "maven"), provided);
+                    }
+                } catch (Exception e) {
+                    logger.accept(4, "Cannot read maven information from " + url + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.accept(2, "Cannot scan provided artifacts: " + e.getMessage());
+        }
+        logger.accept(4, "Found " + provided.size() + " provided artifact" + (provided.size() == 1 ? "" : "s") + " in " + (System.currentTimeMillis() - start) + "ms");
+        return provided;
+    }
+
+    private void scanProvided(File file, Map<String, String> provided) throws IOException {
+        final List<Properties> found = new ArrayList<>();
+        if (file.isDirectory()) {
+            final File[] groups = file.listFiles();
+            if (groups == null) {
+                return;
+            }
+            for (File group : groups) {
+                final File[] artifacts = group.listFiles();
+                if (artifacts == null) {
+                    continue;
+                }
+                for (File artifact : artifacts) {
+                    final File properties = new File(artifact, "pom.properties");
+                    if (properties.isFile()) {
+                        try (InputStream in = new FileInputStream(properties)) {
+                            final Properties props = new Properties();
+                            props.load(in);
+                            found.add(props);
+                        }
+                    }
+                }
+            }
+        } else if (file.isFile()) {
+            try (JarFile jar = new JarFile(file)) {
+                final Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    if (entry.getName().startsWith("META-INF/maven/") && entry.getName().endsWith("/pom.properties")) {
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            final Properties props = new Properties();
+                            props.load(in);
+                            found.add(props);
+                        }
+                    }
+                }
+            }
+        }
+        for (Properties properties : found) {
+            final String groupId = properties.getProperty("groupId");
+            final String artifactId = properties.getProperty("artifactId");
+            final String version = properties.getProperty("version");
+            if (groupId == null || artifactId == null || version == null) {
+                continue;
+            }
+            // Shaded jars contain the information of every shaded artifact, that may be relocated,
+            // so only the artifact that owns the jar is taken
+            if (found.size() > 1 && !file.getName().startsWith(artifactId + '-') && !file.getName().equals(artifactId + ".jar")) {
+                continue;
+            }
+            provided.putIfAbsent(groupId + ':' + artifactId, version);
+        }
+    }
+
+    /**
+     * Test if the provided class exists in class loader.<br>
+     * Take in count "!" can be added before class name to make an inverse check.
      *
      * @param name  class name.
      * @param inner true for inner class loader inside ezlib instance.
      * @return      true if the class exists.
      */
     public boolean test(String name, boolean inner) {
-        final String s;
-        final boolean bool;
-        if (name.startsWith("!")) {
-            s = name.substring(1);
-            bool = false;
-        } else {
-            s = name;
-            bool = true;
-        }
-        try {
-            if (inner) {
-                Class.forName(parse(s), true, ezlib.getPublicClassLoader());
-            } else {
-                Class.forName(parse(s));
+        return test(Collections.singleton(name), inner);
+    }
+
+    /**
+     * Test if all the provided classes exist in class loader.<br>
+     * Take in count "!" can be added before any class name to make an inverse check.
+     *
+     * @param names the class names.
+     * @param inner true for inner class loader inside ezlib instance.
+     * @return      true if every class test was successful.
+     */
+    public boolean test(Collection<String> names, boolean inner) {
+        ClassLoader classLoader = inner ? ezlib.getPublicClassLoader() : EzlibLoader.class.getClassLoader();
+        if (classLoader == null) {
+            classLoader = ClassLoader.getSystemClassLoader();
+        }
+        final Map<String, Boolean> cache = classes.computeIfAbsent(classLoader, key -> new ConcurrentHashMap<>());
+        for (String name : names) {
+            final boolean bool = !name.startsWith("!");
+            final String s = parse(bool ? name : name.substring(1));
+            Boolean exists = cache.get(s);
+            if (exists == null) {
+                exists = exists(s, classLoader);
+                cache.put(s, exists);
+            }
+            if (exists != bool) {
+                return false;
             }
-            return bool;
-        } catch (ClassNotFoundException e) {
-            return !bool;
+        }
+        return true;
+    }
+
+    private boolean exists(String name, ClassLoader classLoader) {
+        switch (classProbe) {
+            case RESOURCE:
+                // Look for class file without loading the class
+                final String resource = name.replace('.', '/') + ".class";
+                return classLoader.getResource(resource) != null;
+            case LOAD:
+            case INITIALIZE:
+            default:
+                try {
+                    Class.forName(name, classProbe == ClassProbe.INITIALIZE, classLoader);
+                    return true;
+                } catch (ClassNotFoundException | LinkageError e) {
+                    return false;
+                }
         }
     }
 
@@ -1085,64 +2134,26 @@ public class EzlibLoader {
     }
 
     /**
-     * Evaluate the provided condition script.
+     * Evaluate the provided condition script.<br>
+     * A script can be a single condition name, a comparison like "java &gt;= 11" or multiple scripts joined with
+     * "&amp;&amp;", "||", "!" and parentheses. Every script is compiled once and the result of constant conditions
+     * is reused.
      *
      * @param s the condition to eval.
      * @return  true if meet condition, false if not and {@code null} if condition doesn't exist.
      */
     public Boolean eval(String s) {
-        String name = s.trim();
-        String value;
-        if (name.startsWith("!")) {
-            s = name.substring(1);
-            name = name.substring(1);
-            value = "false";
-        } else {
-            value = "true";
-        }
-        int expected = Condition.EQUAL;
-        for (int i = 0; i < s.length(); i++) {
-            final char c = s.charAt(i);
-            if (c == '=' || c == '!' || c == '>' || c == '<') {
-                name = s.substring(0, i).trim();
-
-                final int start;
-                final String comparator;
-                if (i + 1 < s.length() && s.charAt(i + 1) == '=') {
-                    start = i + 2;
-                    comparator = c + "=";
-                } else {
-                    start = i + 1;
-                    comparator = String.valueOf(c);
-                }
-
-                value = s.substring(start).trim();
-
-                switch (comparator) {
-                    case ">":
-                        expected = Condition.GREATER;
-                        break;
-                    case ">=":
-                        expected = Condition.GREATER_OR_EQUAL;
-                        break;
-                    case "<=":
-                    case "!":
-                    case "!=":
-                        expected = Condition.LESS_OR_EQUAL;
-                        break;
-                    case "<":
-                        expected = Condition.LESS;
-                        break;
-                }
-                i++;
+        Expression expression = expressions.get(s);
+        if (expression == null) {
+            try {
+                expression = Expression.compile(s);
+            } catch (IllegalArgumentException e) {
+                logger.accept(2, "Cannot compile condition '" + s + "': " + e.getMessage());
+                return null;
             }
+            expressions.put(s, expression);
         }
-
-        final Condition<?> condition = this.conditions.get(name.toLowerCase());
-        if (condition == null) {
-            return null;
-        }
-        return condition.eval(expected, value);
+        return expression.eval(conditions);
     }
 
     /**
@@ -1155,11 +2166,13 @@ public class EzlibLoader {
         if (s == null) {
             return null;
         }
-        String str = s;
-        for (Map.Entry<String, String> entry : replaces.entrySet()) {
-            str = str.replace(entry.getKey(), entry.getValue());
+        // Compile replacements again only if they were changed
+        Replacer replacer = this.replacer;
+        if (replacer == null) {
+            replacer = new Replacer(replaces);
+            this.replacer = replacer;
         }
-        return str;
+        return replacer.replace(s);
     }
 
     private Map<String, String> parse(Map<String, String> map) {
@@ -1177,361 +2190,2903 @@ public class EzlibLoader {
         return finalMap;
     }
 
-    private boolean parseVersionPath(String[] path, String repository, boolean shouldExist) {
-        final String url = ezlib.parseRepository(repository) + path[0].replace(".", "/") + '/' + path[1] + "/maven-metadata.xml";
-        Document ver = null;
-        try {
-            ver = xmlParser.fromUrl(url);
-        } catch (IOException | SAXException e) {
-            if (shouldExist) {
-                new RuntimeException("Cannot parse XML document from: " + url, e).printStackTrace();
-            }
-        }
+    private Ezlib.Coordinate parseVersionPath(Ezlib.Coordinate path, Repository repository, boolean shouldExist) {
+        final String url = ezlib.parseRepository(repository.url) + path.getGroup().replace('.', '/') + '/' + path.getArtifact() + "/maven-metadata.xml";
+        final Metadata ver = readMetadata(url, repository, shouldExist);
         if (ver == null) {
-            return false;
+            return null;
         }
-        final Element element = ver.getDocumentElement();
-        final Element versioning = xmlParser.getElement(element, "versioning");
-        if (versioning == null) {
+        if (ver.isEmpty()) {
             logger.accept(4, "The versioning node is null from " + url);
-            return false;
+            return null;
         }
-        final String[] split = path[2].substring(1).split("\\.");
+        final String[] split = path.getVersion().substring(1).split("\\.");
         for (int i = 0; i < split.length; i++) {
             split[i] = split[i].replace("<dot>", ".");
         }
-        final String text = xmlParser.getTextContent(element, versioning, split);
+        final String text = ver.get(split);
         if (text == null) {
-            logger.accept(2, "Cannot find versioning content at path '" + path[2].substring(1) + "' from " + url);
-            return false;
+            logger.accept(2, "Cannot find versioning content at path '" + path.getVersion().substring(1) + "' from " + url);
+            return null;
         }
-        path[2] = text;
-        return true;
+        return path.withVersion(text);
     }
     
-    private boolean parseSnapshot(String[] path, String repository, boolean shouldExist) {
-        final String url = ezlib.parseRepository(repository) + path[0].replace(".", "/") + '/' + path[1] + '/' + path[2] + "/maven-metadata.xml";
-        Document ver = null;
-        try {
-            ver = xmlParser.fromUrl(url);
-        } catch (IOException | SAXException e) {
-            if (shouldExist) {
-                new RuntimeException("Cannot parse XML document from: " + url, e).printStackTrace();
-            }
-        }
+    private Ezlib.Coordinate parseSnapshot(Ezlib.Coordinate path, Repository repository, boolean shouldExist) {
+        final String version = path.getVersion();
+        final String url = ezlib.parseRepository(repository.url) + path.getGroup().replace('.', '/') + '/' + path.getArtifact() + '/' + version + "/maven-metadata.xml";
+        final Metadata ver = readMetadata(url, repository, shouldExist);
         if (ver == null) {
-            return false;
+            return null;
         }
-        final Element element = ver.getDocumentElement();
-        final Element versioning = xmlParser.getElement(element, "versioning");
-        if (versioning == null) {
+        if (ver.isEmpty()) {
             logger.accept(2, "The versioning node is null from " + url);
-            return false;
+            return null;
         }
         // Try to get snapshot from "snapshotVersions.snapshotVersion.value" path
-        String snapshot = xmlParser.getTextContent(element, versioning, "snapshotVersions", "snapshotVersion", "value");
+        String snapshot = ver.get("snapshotVersions", "snapshotVersion", "value");
         if (snapshot != null) {
-            path[2] = path[2] + '@' + snapshot;
-            return true;
+            return path.withVersion(version + '@' + snapshot);
         }
         // Try to parse snapshot version using snapshot information
-        final String timestamp = xmlParser.getTextContent(element, versioning, "snapshot", "timestamp");
-        final String buildNumber = xmlParser.getTextContent(element, versioning, "snapshot", "buildNumber");
+        final String timestamp = ver.get("snapshot", "timestamp");
+        final String buildNumber = ver.get("snapshot", "buildNumber");
         if (timestamp == null || buildNumber == null) {
             logger.accept(2, "Cannot get snapshot information from " + url + " after looking for snapshot versions");
-            return false;
+            return null;
         }
-        if (path[2].endsWith("-SNAPSHOT")) {
-            snapshot = path[2].substring(0, path[2].length() - 9) + '-' + timestamp + '-' + buildNumber;
+        if (version.endsWith("-SNAPSHOT")) {
+            snapshot = version.substring(0, version.length() - 9) + '-' + timestamp + '-' + buildNumber;
         } else {
-            snapshot = path[2] + '-' + timestamp + '-' + buildNumber;
+            snapshot = version + '-' + timestamp + '-' + buildNumber;
         }
-        path[2] = path[2] + '@' + snapshot;
-        return true;
+        return path.withVersion(version + '@' + snapshot);
     }
 
-    private String parsePath(Element document, Element dependency, boolean acceptInvalid) {
-        String groupId = xmlParser.getTextContent(document, dependency, "groupId");
-        String artifactId = xmlParser.getTextContent(document, dependency, "artifactId");
-        String version = xmlParser.getTextContent(document, dependency, "version");
-        if (acceptInvalid) {
-            if (isInvalid(groupId)) {
-                return null;
-            }
+    private Pom resolvePom(Pom pom, Repository repository, Set<String> resolving) {
+        if (pom.resolved) {
+            return pom;
+        }
+        final Pom.Artifact parent = pom.getParent();
+        if (parent != null) {
+            pom.parentPom = loadPom(parent.getGroupId(), parent.getArtifactId(), pom.interpolate(parent.getVersion()), repository, resolving);
+        }
+        // Imported poms (bill of materials) can use properties from parent
+        for (Pom.Artifact artifact : pom.getDependencyManagement()) {
+            if ("import".equals(artifact.getScope()) && "pom".equals(artifact.getType())) {
+                final Pom imported = loadPom(pom.interpolate(artifact.getGroupId()), pom.interpolate(artifact.getArtifactId()), pom.interpolate(artifact.getVersion()), repository, resolving);
+                if (imported != null) {
+                    pom.imports.add(imported);
+                }
+            }
+        }
+        pom.resolved = true;
+        return pom;
+    }
+
+    private Pom loadPom(String groupId, String artifactId, String version, Repository repository, Set<String> resolving) {
+        if (isInvalid(groupId) || isInvalid(artifactId) || isInvalid(version)) {
+            return null;
+        }
+        final String path = groupId + ':' + artifactId + ':' + version;
+        Pom pom = poms.get(path);
+        if (pom != null) {
+            return pom;
+        }
+        // Avoid cyclic parents or imports
+        if (!resolving.add(path)) {
+            logger.accept(2, "The pom " + path + " is referenced by itself");
+            return null;
+        }
+        try {
+            for (Repository repo : lookupRepositories(Dependency.valueOf(path).repository(repository))) {
+                final File file;
+                try {
+                    file = download(Ezlib.Coordinate.of(path), repo, "pom");
+                } catch (IOException | IllegalArgumentException e) {
+                    continue;
+                }
+                try {
+                    pom = resolvePom(Pom.read(file), repo, resolving);
+                } catch (IOException e) {
+                    logger.accept(2, "Cannot read pom file of '" + path + "': " + e.getMessage());
+                    return null;
+                }
+                logger.accept(4, "Loaded pom " + path + " from " + repo);
+                poms.put(path, pom);
+                return pom;
+            }
+        } finally {
+            resolving.remove(path);
+        }
+        logger.accept(2, "Cannot find pom " + path + " from " + repository + " or loaded repositories");
+        return null;
+    }
+
+    private Metadata readMetadata(String url, Repository repository, boolean shouldExist) {
+        Metadata document = metadata.get(url);
+        if (document != null) {
+            return document;
+        }
+        if (isMissing(url)) {
+            return null;
+        }
+        final File file = metadataFile(url);
+        final File info = new File(file.getPath().substring(0, file.getPath().length() - 4) + ".properties");
+        // Use the cached document while the repository update policy doesn't require a check
+        final long interval = repository.updateInterval();
+        if (file.isFile() && (interval < 0 || System.currentTimeMillis() - file.lastModified() < interval)) {
+            document = readMetadata(file);
+            if (document != null) {
+                logger.accept(4, "Using cached metadata from " + url);
+                metadata.put(url, document);
+                return document;
+            }
+        }
+        final Properties properties = new Properties();
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", "application/xml");
+        if (file.isFile() && info.isFile()) {
+            try (InputStream in = new FileInputStream(info)) {
+                properties.load(in);
+            } catch (IOException ignored) { }
+            if (properties.getProperty("etag") != null) {
+                headers.put("If-None-Match", properties.getProperty("etag"));
+            }
+            if (properties.getProperty("last-modified") != null) {
+                headers.put("If-Modified-Since", properties.getProperty("last-modified"));
+            }
+        }
+        try {
+            final URL u = new URL(url);
+            try (Ezlib.Transport.Response response = transport().request("GET", u, headers)) {
+                if (response.getCode() == 304 && (document = readMetadata(file)) != null) {
+                    logger.accept(4, "The cached metadata from " + url + " is up to date");
+                    file.setLastModified(System.currentTimeMillis());
+                } else {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    final InputStream in = response.validate(u).getBody();
+                    final byte[] buffer = new byte[4096];
+                    int len;
+                    while ((len = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, len);
+                    }
+                    final byte[] bytes = out.toByteArray();
+                    document = Metadata.read(new ByteArrayInputStream(bytes));
+                    properties.clear();
+                    properties.setProperty("url", url);
+                    if (response.getHeader("ETag") != null) {
+                        properties.setProperty("etag", response.getHeader("ETag"));
+                    }
+                    if (response.getHeader("Last-Modified") != null) {
+                        properties.setProperty("last-modified", response.getHeader("Last-Modified"));
+                    }
+                    saveMetadata(file, info, bytes, properties);
+                }
+            }
+        } catch (IOException e) {
+            if (e instanceof FileNotFoundException) {
+                missing(url);
+            }
+            // Stale metadata is better than nothing when the repository cannot be reached
+            if (!(e instanceof FileNotFoundException) && (document = readMetadata(file)) != null) {
+                logger.accept(2, "Using outdated cached metadata from " + url + " due to: " + e.getMessage());
+            } else {
+                if (shouldExist) {
+                    new RuntimeException("Cannot parse XML document from: " + url, e).printStackTrace();
+                }
+                return null;
+            }
+        }
+        metadata.put(url, document);
+        return document;
+    }
+
+    private Metadata readMetadata(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return Metadata.read(file);
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    private File metadataFile(String url) {
+        String name;
+        try {
+            name = Ezlib.toHex(MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8))).substring(0, 20);
+        } catch (NoSuchAlgorithmException e) {
+            name = Integer.toHexString(url.hashCode());
+        }
+        return new File(new File(ezlib.getCacheFolder(), "metadata"), name + ".xml");
+    }
+
+    private void saveMetadata(File file, File info, byte[] bytes, Properties properties) {
+        try {
+            final File parent = file.getParentFile();
+            if (!parent.exists()) {
+                parent.mkdirs();
+            }
+            // Documents can be saved concurrently, so every thread use its own temporary files
+            final File temp = File.createTempFile(file.getName(), ".tmp", parent);
+            final File tempInfo = File.createTempFile(info.getName(), ".tmp", parent);
+            Files.write(temp.toPath(), bytes);
+            try (OutputStream out = new FileOutputStream(tempInfo)) {
+                properties.store(out, null);
+            }
+            Files.move(tempInfo.toPath(), info.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.accept(2, "Cannot save cached metadata " + file + ": " + e.getMessage());
+        }
+    }
+
+    private File download(Ezlib.Coordinate dependency, Repository repository, String fileType) throws IOException {
+        final String key = repository.url + ' ' + dependency + ' ' + fileType;
+        if (isMissing(key)) {
+            throw new FileNotFoundException("The file " + dependency + " (" + fileType + ") was not found on " + repository + " recently");
+        }
+        try {
+            final File file = ezlib.download(dependency, repository.url, repository.urlFormat(), fileType, transport());
+            if (misses != null) {
+                misses.remove(key);
+            }
+            if (!"jar".equals(fileType)) {
+                return file;
+            }
+            final File verified = verify(file, dependency, repository);
+            downloads.put(dependency.getPath(), verified);
+            return verified;
+        } catch (FileNotFoundException e) {
+            missing(key);
+            throw e;
+        }
+    }
+
+    private File verify(File file, Ezlib.Coordinate dependency, Repository repository) throws IOException {
+        final DependencyGraph.Node node = pinned.get(dependency.getPath());
+        if (node == null || node.matches(ezlib, file)) {
+            return file;
+        }
+        // The saved file may be a different build with the same version
+        logger.accept(2, "The file " + file.getName() + " doesn't match the resolved checksum, so will be downloaded again");
+        Files.deleteIfExists(file.toPath());
+        final File downloaded = ezlib.download(dependency, repository.url, repository.urlFormat(), "jar", transport());
+        if (node.matches(ezlib, downloaded)) {
+            return downloaded;
+        }
+        Files.deleteIfExists(downloaded.toPath());
+        throw new IOException("The file " + dependency + " from " + repository + " doesn't match the resolved checksum " + node.sha1);
+    }
+
+    private boolean isMissing(String key) {
+        final Properties misses = this.misses;
+        if (misses == null || !skipMisses) {
+            return false;
+        }
+        final String time = misses.getProperty(key);
+        if (time == null) {
+            return false;
+        }
+        try {
+            if (System.currentTimeMillis() - Long.parseLong(time) < missExpiration) {
+                missSkipped = true;
+                return true;
+            }
+        } catch (NumberFormatException ignored) { }
+        misses.remove(key);
+        return false;
+    }
+
+    private void missing(String key) {
+        final Properties misses = this.misses;
+        if (misses != null) {
+            misses.setProperty(key, String.valueOf(System.currentTimeMillis()));
+        }
+    }
+
+    private Properties loadMisses() {
+        final Properties misses = new Properties();
+        final File file = new File(ezlib.getCacheFolder(), "misses.properties");
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                misses.load(in);
+            } catch (IOException e) {
+                logger.accept(2, "Cannot read repository misses from " + file + ": " + e.getMessage());
+            }
+        }
+        return misses;
+    }
+
+    private void saveMisses(Properties misses) {
+        // Expired misses are not saved again
+        final long now = System.currentTimeMillis();
+        final Properties properties = new Properties();
+        for (String key : misses.stringPropertyNames()) {
+            try {
+                if (now - Long.parseLong(misses.getProperty(key)) < missExpiration) {
+                    properties.setProperty(key, misses.getProperty(key));
+                }
+            } catch (NumberFormatException ignored) { }
+        }
+        final File file = new File(ezlib.getCacheFolder(), "misses.properties");
+        try {
+            if (properties.isEmpty()) {
+                Files.deleteIfExists(file.toPath());
+                return;
+            }
+            if (!file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            final File temp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Files not found on repositories");
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.accept(2, "Cannot save repository misses into " + file + ": " + e.getMessage());
+        }
+    }
+
+    private List<Repository> lookupRepositories(Dependency dependency) {
+        final List<Repository> list = new ArrayList<>();
+        final Repository main = dependency.mainRepository(this);
+        if (main != null) {
+            list.add(main);
+        }
+        final List<Repository> routed = new ArrayList<>();
+        final List<Repository> others = new ArrayList<>();
+        for (Repository repository : this.repositories) {
+            // Avoid repeated repo and repositories that don't include the dependency
+            if (!list.contains(repository) && repository.includes(dependency.path)) {
+                (repository.include == null || repository.include.isEmpty() ? others : routed).add(repository);
+            }
+        }
+        if (rankRepositories && main == null) {
+            rank(routed);
+            rank(others);
+        }
+        // Repositories with a matching rule are used first
+        list.addAll(routed);
+        list.addAll(others);
+        // Use default repository
+        if (list.isEmpty()) {
+            list.add(new Repository().url(ezlib.getDefaultRepository()));
+        }
+        return list;
+    }
+
+    private Repository route(Repository repository, String path) {
+        // Sub-dependencies use a copy of the parent repository, so routing rules are taken from loaded repository
+        for (Repository repo : this.repositories) {
+            if (repo.equals(repository)) {
+                return repo.includes(path) ? repository : null;
+            }
+        }
+        return repository.includes(path) ? repository : null;
+    }
+
+    private void rank(List<Repository> list) {
+        if (list.size() < 2) {
+            return;
+        }
+        // Only measured repositories are sorted between their own positions,
+        // so repositories without stats keep the insertion order
+        final List<Integer> positions = new ArrayList<>();
+        final List<Repository> measured = new ArrayList<>();
+        final Map<Repository, Double> scores = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            final Repository repository = list.get(i);
+            final RepositoryStats stats = this.stats.get(ezlib.parseRepository(repository.url));
+            if (stats != null) {
+                positions.add(i);
+                measured.add(repository);
+                scores.put(repository, stats.score());
+            }
+        }
+        if (measured.size() < 2) {
+            return;
+        }
+        measured.sort(Comparator.comparingDouble(scores::get));
+        for (int i = 0; i < positions.size(); i++) {
+            list.set(positions.get(i), measured.get(i));
+        }
+    }
+
+    private Ezlib.Transport transport() {
+        // Requests made while loading are measured by the current session transport
+        final Ezlib.Transport transport = this.transport;
+        return transport != null ? transport : ezlib.getTransport();
+    }
+
+    private Ezlib.Transport measure(Ezlib.Transport transport) {
+        return (method, url, headers) -> {
+            final RepositoryStats stats = stats(url.toString());
+            if (stats == null) {
+                return transport.request(method, url, headers);
+            }
+            // Checksum files are optional, so only latency is measured
+            final String path = url.getPath();
+            final boolean content = !path.endsWith(".sha1") && !path.endsWith(".sha256") && !path.endsWith(".md5");
+            final long start = System.nanoTime();
+            final Ezlib.Transport.Response response;
+            try {
+                response = transport.request(method, url, headers);
+            } catch (IOException e) {
+                stats.error();
+                throw e;
+            }
+            stats.record(response.getCode(), (System.nanoTime() - start) / 1000000.0, content);
+            return response;
+        };
+    }
+
+    private RepositoryStats stats(String url) {
+        for (Repository repository : this.repositories) {
+            if (repository.url == null) {
+                continue;
+            }
+            final String repo = ezlib.parseRepository(repository.url);
+            if (url.startsWith(repo)) {
+                return stats.computeIfAbsent(repo, key -> new RepositoryStats());
+            }
+        }
+        return null;
+    }
+
+    private void loadStats() {
+        final File file = new File(ezlib.getCacheFolder(), "repositories.properties");
+        if (!stats.isEmpty() || !file.isFile()) {
+            return;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.accept(2, "Cannot read repository stats from " + file + ": " + e.getMessage());
+            return;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            final RepositoryStats stats = RepositoryStats.valueOf(properties.getProperty(key));
+            if (stats != null) {
+                this.stats.put(key, stats);
+            }
+        }
+    }
+
+    private void saveStats() {
+        if (stats.isEmpty()) {
+            return;
+        }
+        final Properties properties = new Properties();
+        for (Map.Entry<String, RepositoryStats> entry : stats.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        final File file = new File(ezlib.getCacheFolder(), "repositories.properties");
+        try {
+            if (!file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            final File temp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Repository stats: requests hits misses errors latency");
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.accept(2, "Cannot save repository stats into " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void prefetch(Collection<Dependency> dependencies) {
+        final ExecutorService scheduler = this.scheduler;
+        if (scheduler == null || dependencies.size() < 2) {
+            return;
+        }
+        final Set<String> paths = new HashSet<>();
+        final List<Future<?>> futures = new ArrayList<>();
+        for (Dependency dependency : dependencies) {
+            if (dependency.path == null || !paths.add(dependency.path) || applied.contains(dependency)) {
+                continue;
+            }
+            if (dependency.meetTest(this) || !eval(dependency.condition)) {
+                continue;
+            }
+            final List<Repository> repositories = lookupRepositories(dependency);
+            futures.add(scheduler.submit(() -> fetch(dependency, repositories)));
+        }
+        logger.accept(4, "Fetching " + futures.size() + " dependenc" + (futures.size() == 1 ? "y" : "ies") + " concurrently");
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Any error will be reported again when the dependency is applied
+            }
+        }
+    }
+
+    private void fetch(Dependency dependency, List<Repository> repositories) {
+        if (dependency.mainRepository(this) == null) {
+            repositories = hedge(dependency, repositories);
+        }
+        final Ezlib.Coordinate coordinate;
+        try {
+            coordinate = Ezlib.Coordinate.of(dependency.path);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        for (Repository repository : repositories) {
+            Ezlib.Coordinate path = coordinate;
+            if (path.isVersionPath() && (path = parseVersionPath(path, repository, false)) == null) {
+                continue;
+            }
+            if (dependency.snapshot && !path.hasFileVersion() && (path = parseSnapshot(path, repository, false)) == null) {
+                continue;
+            }
+            try {
+                download(path, repository, "jar");
+            } catch (IOException | IllegalArgumentException e) {
+                continue;
+            }
+            if (dependency.transitive) {
+                try {
+                    download(path, repository, "pom");
+                } catch (IOException | IllegalArgumentException ignored) { }
+            }
+            return;
+        }
+    }
+
+    private List<Repository> hedge(Dependency dependency, List<Repository> repositories) {
+        final ExecutorService hedger = this.hedger;
+        // Version paths and snapshots need metadata from every repository, so they are looked up in order
+        if (hedger == null || repositories.size() < 2 || dependency.snapshot || dependency.path == null || dependency.path.indexOf('@') >= 0) {
+            return repositories;
+        }
+        final String path = dependency.path;
+        final Ezlib.Coordinate coordinate;
+        final File file;
+        final List<Repository> candidates = new ArrayList<>();
+        try {
+            coordinate = Ezlib.Coordinate.of(path);
+            file = ezlib.getFile(coordinate, repositories.get(0).urlFormat(), "jar");
+            if (file.exists()) {
+                return repositories;
+            }
+            for (Repository repository : repositories) {
+                if (candidates.size() < hedgeRepositories && !isMissing(repository.url + ' ' + path + " jar")) {
+                    candidates.add(repository);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return repositories;
+        }
+        if (candidates.size() < 2) {
+            return repositories;
+        }
+
+        final long start = System.currentTimeMillis();
+        final CompletionService<Repository> service = new ExecutorCompletionService<>(hedger);
+        final List<Future<Repository>> futures = new ArrayList<>();
+        // Only the first completed download is moved into dependency file
+        final AtomicBoolean completed = new AtomicBoolean();
+        Repository found = null;
+        try {
+            futures.add(service.submit(() -> hedge(coordinate, candidates.get(0), file, completed)));
+            int finished = 0;
+            while (found == null && finished < candidates.size()) {
+                final Future<Repository> future;
+                if (futures.size() < candidates.size()) {
+                    // Start the next request if the delay is exceeded or every started request has failed
+                    future = finished == futures.size() ? null : service.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+                    if (future == null) {
+                        final int index = futures.size();
+                        futures.add(service.submit(() -> hedge(coordinate, candidates.get(index), file, completed)));
+                        continue;
+                    }
+                } else {
+                    future = service.take();
+                }
+                finished++;
+                try {
+                    found = future.get();
+                } catch (ExecutionException ignored) { }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<Repository> future : futures) {
+                future.cancel(true);
+            }
+        }
+        if (found == null || found.equals(repositories.get(0))) {
+            return repositories;
+        }
+        logger.accept(4, "Found dependency " + path + " on " + found + " with hedged lookup in " + (System.currentTimeMillis() - start) + "ms");
+        final List<Repository> list = new ArrayList<>(repositories);
+        list.remove(found);
+        list.add(0, found);
+        return list;
+    }
+
+    private Repository hedge(Ezlib.Coordinate coordinate, Repository repository, File file, AtomicBoolean completed) throws IOException {
+        final String key = repository.url + ' ' + coordinate + " jar";
+        final URL url = new URL(ezlib.parseRepository(repository.url) + repository.urlFormat().format(coordinate, "jar"));
+        // Every repository is downloaded into its own file, so a partial file is only resumed from the same repository
+        final File temp = new File(file.getPath() + ".hedge-" + Integer.toHexString(repository.url.hashCode()));
+        try {
+            // The file is verified with the checksum from the same repository while is downloaded
+            final String sha1 = ezlib.downloadVerified(url, temp, transport());
+            if (!completed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            // The moved file keeps its size and last modified time, so it's not verified again when is applied
+            ezlib.trustChecksum(file, sha1);
+            return repository;
+        } catch (FileNotFoundException e) {
+            missing(key);
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+            Files.deleteIfExists(new File(temp.getPath() + ".part").toPath());
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private String parsePath(Pom pom, Pom.Artifact artifact, boolean acceptInvalid) {
+        String groupId = pom.interpolate(artifact.getGroupId());
+        String artifactId = pom.interpolate(artifact.getArtifactId());
+        String version = pom.interpolate(artifact.getVersion());
+        if (acceptInvalid) {
+            if (isInvalid(groupId)) {
+                return null;
+            }
             if (isInvalid(artifactId)) {
                 return groupId;
             } else {
-                return groupId + ":" + artifactId + (isInvalid(version) ? "" : ":" + version);
+                return groupId + ":" + artifactId + (isInvalid(version) ? "" : ":" + version);
+            }
+        }
+        if (isInvalid(groupId) || isInvalid(artifactId) || isInvalid(version)) {
+            return null;
+        }
+        return groupId + ':' + artifactId + ':' + version;
+    }
+
+    private static Map<String, String> parseRelocations(String... relocations) {
+        final Map<String, String> map = new HashMap<>();
+        if (relocations.length < 2) {
+            return map;
+        }
+        try {
+            for (int i = 0; i < relocations.length; i = i + 2) {
+                map.put(relocations[i], relocations[i + 1]);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            new IllegalArgumentException("Invalid relocation: [" + String.join(", ", relocations) + "]").printStackTrace();
+        }
+        return map;
+    }
+
+    private static boolean hasParams(Type type, Class<?>... params) {
+        if (type instanceof ParameterizedType) {
+            final ParameterizedType paramType = (ParameterizedType) type;
+            if (paramType.getActualTypeArguments().length == params.length) {
+                for (int i = 0; i < params.length; i++) {
+                    final Class<?> actualParam = (Class<?>) paramType.getActualTypeArguments()[i];
+                    if (!params[i].isAssignableFrom(actualParam) || params[i] != actualParam) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String id(String path) {
+        // Group and artifact without version
+        final int first = path.indexOf(':');
+        final int second = first < 0 ? -1 : path.indexOf(':', first + 1);
+        return second < 0 ? path : path.substring(0, second);
+    }
+
+    private static boolean isInvalid(String s) {
+        return s == null || s.trim().isEmpty() || s.equals("null") || s.equals("*") || s.contains("${");
+    }
+
+    static int compareVersions(String version1, String version2) {
+        final List<Object> items1 = versionItems(version1);
+        final List<Object> items2 = versionItems(version2);
+        for (int i = 0; i < Math.max(items1.size(), items2.size()); i++) {
+            final int result = compareVersionItems(i < items1.size() ? items1.get(i) : null, i < items2.size() ? items2.get(i) : null);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private static List<Object> versionItems(String version) {
+        // Similar to maven, numbers and qualifiers are split by separators and transitions between digits and letters
+        final List<Object> items = new ArrayList<>();
+        if (version == null) {
+            return items;
+        }
+        final StringBuilder builder = new StringBuilder();
+        boolean digit = false;
+        for (char c : (version.toLowerCase() + '.').toCharArray()) {
+            final boolean separator = c == '.' || c == '-' || c == '_';
+            if (builder.length() > 0 && (separator || Character.isDigit(c) != digit)) {
+                final String item = builder.toString();
+                if (digit) {
+                    try {
+                        items.add(Long.parseLong(item));
+                    } catch (NumberFormatException e) {
+                        items.add(item);
+                    }
+                } else {
+                    items.add(item);
+                }
+                builder.setLength(0);
+            }
+            if (!separator) {
+                digit = Character.isDigit(c);
+                builder.append(c);
+            }
+        }
+        return items;
+    }
+
+    private static int compareVersionItems(Object item1, Object item2) {
+        if (item1 instanceof Long && item2 instanceof Long) {
+            return Long.compare((Long) item1, (Long) item2);
+        }
+        // Numbers are greater than qualifiers, missing numbers are zero
+        if (item1 instanceof Long || item2 instanceof Long) {
+            if (item1 == null || item2 == null) {
+                return Long.compare(item1 == null ? 0L : (Long) item1, item2 == null ? 0L : (Long) item2);
+            }
+            return item1 instanceof Long ? 1 : -1;
+        }
+        final String s1 = (String) item1;
+        final String s2 = (String) item2;
+        final int result = Integer.compare(qualifierRank(s1), qualifierRank(s2));
+        if (result != 0 || s1 == null || s2 == null) {
+            return result;
+        }
+        return qualifierRank(s1) == 8 ? s1.compareTo(s2) : 0;
+    }
+
+    private static int qualifierRank(String qualifier) {
+        if (qualifier == null) {
+            return 6;
+        }
+        switch (qualifier) {
+            case "alpha":
+            case "a":
+                return 1;
+            case "beta":
+            case "b":
+                return 2;
+            case "milestone":
+            case "m":
+                return 3;
+            case "rc":
+            case "cr":
+                return 4;
+            case "snapshot":
+                return 5;
+            case "":
+            case "ga":
+            case "final":
+            case "release":
+                return 6;
+            case "sp":
+                return 7;
+            default:
+                return 8;
+        }
+    }
+
+    private static XMLInputFactory xmlFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static void readXml(InputStream in, Consumer<String> start, BiConsumer<String, String> end) throws IOException {
+        try {
+            final XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(in);
+            try {
+                // Element path like "project/dependencies/dependency"
+                final StringBuilder path = new StringBuilder();
+                final StringBuilder text = new StringBuilder();
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            if (path.length() > 0) {
+                                path.append('/');
+                            }
+                            path.append(reader.getLocalName());
+                            text.setLength(0);
+                            start.accept(path.toString());
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            end.accept(path.toString(), text.toString().trim());
+                            text.setLength(0);
+                            path.setLength(Math.max(path.lastIndexOf("/"), 0));
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot parse XML: " + e.getMessage(), e);
+        }
+    }
+
+    private static void readXml(Node node, String path, Consumer<String> start, BiConsumer<String, String> end) {
+        start.accept(path);
+        final StringBuilder text = new StringBuilder();
+        final NodeList list = node.getChildNodes();
+        for (int i = 0; i < list.getLength(); i++) {
+            final Node child = list.item(i);
+            if (child instanceof Element) {
+                final String name = child.getLocalName() != null ? child.getLocalName() : child.getNodeName();
+                readXml(child, path + '/' + name, start, end);
+            } else if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                text.append(child.getNodeValue());
+            }
+        }
+        end.accept(path, text.toString().trim());
+    }
+
+    /**
+     * The XML parser to handle documents.
+     *
+     * @deprecated pom and metadata files are read with a StAX streaming parser using {@link Pom} and {@link Metadata}.
+     */
+    @Deprecated
+    public static class XmlParser {
+        private final DocumentBuilder docBuilder;
+
+
+        /**
+         * Constructs a XML parser with default document builder.
+         */
+        public XmlParser() {
+            this(defaultBuilder());
+        }
+
+        /**
+         * Consturcts a XML parser with provided document builder.
+         *
+         * @param docBuilder the document builder to use.
+         */
+        public XmlParser(DocumentBuilder docBuilder) {
+            this.docBuilder = docBuilder;
+        }
+
+        private static DocumentBuilder defaultBuilder() {
+            try {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setFeature("http://xml.org/sax/features/validation", false);
+                factory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
+                factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+                return factory.newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new RuntimeException("Cannot initialize document builder", e);
+            }
+        }
+
+        /**
+         * Get document from URL.
+         *
+         * @param url the URL to connect.
+         * @return     a parsed document from URL or null.
+         * @throws IOException  if an I/O exception occurs.
+         * @throws SAXException if any parse errors occur.
+         */
+        public Document fromUrl(String url) throws IOException, SAXException {
+            return fromUrl(url, Ezlib.defaultTransport());
+        }
+
+        /**
+         * Get document from URL using the provided transport.
+         *
+         * @param url       the URL to connect.
+         * @param transport the transport to request the URL.
+         * @return          a parsed document from URL or null.
+         * @throws IOException  if an I/O exception occurs.
+         * @throws SAXException if any parse errors occur.
+         */
+        public Document fromUrl(String url, Ezlib.Transport transport) throws IOException, SAXException {
+            final URL u = new URL(url);
+            try (Ezlib.Transport.Response response = transport.request("GET", u, Collections.singletonMap("Accept", "application/xml"))) {
+                return parse(response.validate(u).getBody());
+            }
+        }
+
+        /**
+         * Get document from file.
+         *
+         * @param file the file to parse.
+         * @return     the provided file as document or null.
+         * @throws IOException  if an I/O exception occurs.
+         * @throws SAXException if any parse errors occur.
+         */
+        public Document fromFile(File file) throws IOException, SAXException {
+            try (InputStream in = new FileInputStream(file)) {
+                return parse(in);
+            }
+        }
+
+        /**
+         * Get document from input stream.<br>
+         * The stream is fully read before parsing, so documents can be fetched concurrently
+         * while the document builder is used by one thread at time.
+         *
+         * @param in the input stream to read.
+         * @return   a parsed document from input stream.
+         * @throws IOException  if an I/O exception occurs.
+         * @throws SAXException if any parse errors occur.
+         */
+        public Document parse(InputStream in) throws IOException, SAXException {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
+            }
+            synchronized (docBuilder) {
+                return docBuilder.parse(new ByteArrayInputStream(out.toByteArray()));
+            }
+        }
+
+        /**
+         * Get document builder used to parse documents.
+         *
+         * @return a document builder.
+         */
+        public DocumentBuilder getDocBuilder() {
+            return docBuilder;
+        }
+
+        /**
+         * Get node from element at provided path.
+         *
+         * @param element the element to see.
+         * @param path    the key path.
+         * @return        a node from provided path or null.
+         */
+        public Node getNode(Element element, String... path) {
+            Element node = element;
+            for (int i = 0; i < path.length; i++) {
+                String key = path[i];
+                // Try to get from child nodes
+                NodeList list = node.getChildNodes();
+                boolean found = false;
+                for (int i1 = 0; i1 < list.getLength(); i1++) {
+                    Node n = list.item(i1);
+                    // Compare name with key
+                    if (n.getNodeName().equals(key)) {
+                        if (n instanceof Element) {
+                            node = (Element) n;
+                            found = true;
+                            break;
+                        }
+                        if (i + 1 >= path.length) {
+                            return n;
+                        } else {
+                            return null;
+                        }
+                    }
+                }
+                if (found) {
+                    continue;
+                }
+                // Try to get from node list
+                list = node.getElementsByTagName(key);
+                if (list.getLength() > 0) {
+                    Node n;
+                    if (i + 1 < path.length) {
+                        // Try to find index from next key
+                        String nextKey = path[i + 1];
+                        if (nextKey.equals("-1")) {
+                            // Latest index
+                            n = list.item(list.getLength() - 1);
+                            i++;
+                        } else {
+                            try {
+                                // Index number
+                                n = list.item(Integer.parseInt(nextKey));
+                                i++;
+                            } catch (NumberFormatException e) {
+                                n = list.item(0);
+                            }
+                        }
+                    } else {
+                        n = list.item(0);
+                    }
+                    if (n instanceof Element) {
+                        node = (Element) n;
+                        continue;
+                    }
+                    if (i + 1 >= path.length) {
+                        return n;
+                    } else {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Get element inside element at provided path.
+         *
+         * @param element the element to see.
+         * @param path    the key path.
+         * @return        a element from provided path or null.
+         */
+        public Element getElement(Element element, String... path) {
+            final Node node = getNode(element, path);
+            return node instanceof Element ? (Element) node : null;
+        }
+
+        /**
+         * Get element list from provided element path by tag name.
+         *
+         * @param element the element to see.
+         * @param tag     the tag name to match elements.
+         * @param path    the key path.
+         * @return        a list containing all the found nodes.
+         */
+        public List<Element> getElements(Element element, String tag, String... path) {
+            final List<Element> elements = new ArrayList<>();
+            Node node = getElement(element, path);
+            if (node == null) {
+                return elements;
+            }
+            NodeList list = ((Element) node).getElementsByTagName(tag);
+            for (int i = 0; i < list.getLength(); i++) {
+                node = list.item(i);
+                if (node instanceof Element) {
+                    elements.add((Element) node);
+                }
+            }
+            return elements;
+        }
+
+        /**
+         * Get text content from element path.
+         *
+         * @param document the full document if the text content have any node variable to parse.
+         * @param element  the element to see.
+         * @param path     the key path.
+         * @return         a parsed string representing the found text from node at path or null.
+         */
+        public String getTextContent(Element document, Element element, String... path) {
+            return getTextContentOrDefault(document, element, null, path);
+        }
+
+        /**
+         * Get text content from element path or use default value if node don't exists.
+         *
+         * @param document the full document if the text content have any node variable to parse.
+         * @param element  the element to see.
+         * @param def      the default text.
+         * @param path     the key path.
+         * @return         a parsed string representing the found text from node at path or null.
+         */
+        public String getTextContentOrDefault(Element document, Element element, String def, String... path) {
+            Node node = getNode(element, path);
+            if (node == null) {
+                return def;
+            }
+            String s = node.getTextContent();
+            if (s == null) {
+                return null;
+            }
+            final Matcher matcher = NODE_VARIABLE.matcher(s);
+            while (matcher.find()) {
+                String match = matcher.group(1);
+                if (!match.startsWith("project.") && !match.startsWith("pom.")) {
+                    // Try to find at properties path
+                    final String result = getTextContent(document, document, "properties", match);
+                    if (result != null) {
+                        s = matcher.replaceFirst(result);
+                        continue;
+                    }
+                } else {
+                    // Remove unused prefix
+                    match = match.substring(match.indexOf('.') + 1);
+                }
+                // Find at path
+                s = matcher.replaceFirst(String.valueOf(getTextContent(document, document, match.split("\\."))));
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Compact pom model with the information used to resolve dependencies.<br>
+     * The file is read in one pass with a streaming parser, so only the needed fields are saved.
+     */
+    public static class Pom {
+        private static final String DEPENDENCY = "project/dependencies/dependency";
+        private static final String MANAGED_DEPENDENCY = "project/dependencyManagement/dependencies/dependency";
+
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private String packaging;
+        private Artifact parent;
+        private final Map<String, String> properties = new HashMap<>();
+        private final List<Artifact> dependencies = new ArrayList<>();
+        private final List<Artifact> dependencyManagement = new ArrayList<>();
+        private final List<String> repositories = new ArrayList<>();
+
+        // Resolved information
+        private Pom parentPom;
+        private final List<Pom> imports = new ArrayList<>(0);
+        private boolean resolved;
+
+        // Current parsed elements
+        private Artifact artifact;
+        private Artifact exclusion;
+
+        /**
+         * Read pom from file.
+         *
+         * @param file the file to read.
+         * @return     a pom object represented by file.
+         * @throws IOException if any error occurs while reading.
+         */
+        public static Pom read(File file) throws IOException {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                return read(in);
+            }
+        }
+
+        /**
+         * Read pom from input stream.
+         *
+         * @param in the input stream to read.
+         * @return   a pom object represented by input stream.
+         * @throws IOException if any error occurs while reading.
+         */
+        public static Pom read(InputStream in) throws IOException {
+            final Pom pom = new Pom();
+            readXml(in, pom::start, pom::end);
+            return pom;
+        }
+
+        /**
+         * Convert pom document into {@link Pom}.
+         *
+         * @param document the document to convert.
+         * @return         a pom object represented by document.
+         */
+        public static Pom valueOf(Document document) {
+            final Pom pom = new Pom();
+            final Element element = document.getDocumentElement();
+            readXml(element, element.getLocalName() != null ? element.getLocalName() : element.getNodeName(), pom::start, pom::end);
+            return pom;
+        }
+
+        private void start(String path) {
+            if (path.equals(DEPENDENCY) || path.equals(MANAGED_DEPENDENCY)) {
+                artifact = new Artifact();
+            } else if (artifact != null && path.endsWith("/dependency/exclusions/exclusion")) {
+                exclusion = new Artifact();
+            } else if (path.equals("project/parent")) {
+                parent = new Artifact();
+            }
+        }
+
+        private void end(String path, String text) {
+            if (artifact != null) {
+                if (path.equals(DEPENDENCY)) {
+                    dependencies.add(artifact);
+                    artifact = null;
+                } else if (path.equals(MANAGED_DEPENDENCY)) {
+                    dependencyManagement.add(artifact);
+                    artifact = null;
+                } else if (exclusion != null && path.endsWith("/exclusions/exclusion")) {
+                    artifact.exclusions.add(exclusion);
+                    exclusion = null;
+                } else {
+                    set(exclusion != null ? exclusion : artifact, path.substring(path.lastIndexOf('/') + 1), text);
+                }
+                return;
+            }
+            switch (path) {
+                case "project/groupId":
+                    groupId = text;
+                    break;
+                case "project/artifactId":
+                    artifactId = text;
+                    break;
+                case "project/version":
+                    version = text;
+                    break;
+                case "project/packaging":
+                    packaging = text;
+                    break;
+                case "project/repositories/repository/url":
+                    repositories.add(text);
+                    break;
+                default:
+                    if (path.startsWith("project/parent/")) {
+                        set(parent, path.substring(15), text);
+                    } else if (path.startsWith("project/properties/") && path.indexOf('/', 19) < 0) {
+                        properties.put(path.substring(19), text);
+                    }
+                    break;
+            }
+        }
+
+        private static void set(Artifact artifact, String name, String text) {
+            switch (name) {
+                case "groupId":
+                    artifact.groupId = text;
+                    break;
+                case "artifactId":
+                    artifact.artifactId = text;
+                    break;
+                case "version":
+                    artifact.version = text;
+                    break;
+                case "type":
+                    artifact.type = text;
+                    break;
+                case "classifier":
+                    artifact.classifier = text;
+                    break;
+                case "scope":
+                    artifact.scope = text;
+                    break;
+                case "optional":
+                    artifact.optional = text.equals("true");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Get the pom group id, or the parent group id if it's not defined.
+         *
+         * @return a group id or null.
+         */
+        public String getGroupId() {
+            return groupId == null && parent != null ? parent.groupId : groupId;
+        }
+
+        /**
+         * Get the pom artifact id.
+         *
+         * @return an artifact id or null.
+         */
+        public String getArtifactId() {
+            return artifactId;
+        }
+
+        /**
+         * Get the pom version, or the parent version if it's not defined.
+         *
+         * @return a version or null.
+         */
+        public String getVersion() {
+            return version == null && parent != null ? parent.version : version;
+        }
+
+        /**
+         * Get the pom packaging type.
+         *
+         * @return a packaging type, jar by default.
+         */
+        public String getPackaging() {
+            return packaging == null ? "jar" : packaging;
+        }
+
+        /**
+         * Get the pom parent information.
+         *
+         * @return a parent artifact or null.
+         */
+        public Artifact getParent() {
+            return parent;
+        }
+
+        /**
+         * Get the pom properties.
+         *
+         * @return a map of properties.
+         */
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+
+        /**
+         * Get the declared dependencies, without dependency management or plugin dependencies.
+         *
+         * @return a list of artifacts.
+         */
+        public List<Artifact> getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * Get the dependencies declared in dependency management.
+         *
+         * @return a list of artifacts.
+         */
+        public List<Artifact> getDependencyManagement() {
+            return dependencyManagement;
+        }
+
+        /**
+         * Get the declared repository urls.
+         *
+         * @return a list of urls.
+         */
+        public List<String> getRepositories() {
+            return repositories;
+        }
+
+        /**
+         * Get the resolved parent pom.
+         *
+         * @return a parent pom or null if it's not resolved.
+         */
+        public Pom getParentPom() {
+            return parentPom;
+        }
+
+        /**
+         * Get the resolved poms that are imported in dependency management.
+         *
+         * @return a list of imported poms.
+         */
+        public List<Pom> getImports() {
+            return imports;
+        }
+
+        /**
+         * Get the dependencies declared in this pom and parent poms, with parsed properties and
+         * the version, scope and exclusions from dependency management if they are not declared.
+         *
+         * @return a list of artifacts.
+         */
+        public List<Artifact> getEffectiveDependencies() {
+            final Map<String, Artifact> map = new LinkedHashMap<>();
+            for (Pom pom = this; pom != null; pom = pom.parentPom) {
+                for (Artifact dependency : pom.dependencies) {
+                    final Artifact artifact = interpolate(dependency);
+                    // Dependencies from child pom override the parent ones
+                    map.putIfAbsent(artifact.groupId + ':' + artifact.artifactId + ':' + artifact.type + ':' + artifact.classifier, artifact);
+                }
+            }
+            for (Artifact artifact : map.values()) {
+                final Artifact managed = getManaged(artifact.groupId, artifact.artifactId);
+                if (managed == null) {
+                    continue;
+                }
+                if (artifact.version == null || artifact.version.isEmpty()) {
+                    artifact.version = managed.version;
+                }
+                if (artifact.scope == null) {
+                    artifact.scope = managed.scope;
+                }
+                artifact.exclusions.addAll(managed.exclusions);
+            }
+            return new ArrayList<>(map.values());
+        }
+
+        /**
+         * Get the managed artifact from dependency management of this pom, parent poms or imported poms.
+         *
+         * @param groupId    the artifact group id.
+         * @param artifactId the artifact id.
+         * @return           a managed artifact with parsed properties or null.
+         */
+        public Artifact getManaged(String groupId, String artifactId) {
+            // Declared dependency management has priority over imported poms
+            for (Pom pom = this; pom != null; pom = pom.parentPom) {
+                for (Artifact artifact : pom.dependencyManagement) {
+                    if (!"import".equals(artifact.scope) && Objects.equals(interpolate(artifact.groupId), groupId) && Objects.equals(interpolate(artifact.artifactId), artifactId)) {
+                        return interpolate(artifact);
+                    }
+                }
+            }
+            for (Pom pom = this; pom != null; pom = pom.parentPom) {
+                for (Pom imported : pom.imports) {
+                    final Artifact artifact = imported.getManaged(groupId, artifactId);
+                    if (artifact != null) {
+                        return artifact;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Artifact interpolate(Artifact artifact) {
+            final Artifact result = new Artifact();
+            result.groupId = interpolate(artifact.groupId);
+            result.artifactId = interpolate(artifact.artifactId);
+            result.version = interpolate(artifact.version);
+            result.type = artifact.type == null ? "jar" : interpolate(artifact.type);
+            result.classifier = interpolate(artifact.classifier);
+            result.scope = interpolate(artifact.scope);
+            result.optional = artifact.optional;
+            for (Artifact exclusion : artifact.exclusions) {
+                result.exclusions.add(interpolate(exclusion));
+            }
+            return result;
+        }
+
+        /**
+         * Replace the node variables inside text with pom properties or project information.
+         *
+         * @param s the text to parse.
+         * @return  a parsed text, unknown variables are not replaced.
+         */
+        public String interpolate(String s) {
+            if (s == null || s.indexOf('$') < 0) {
+                return s;
+            }
+            // Avoid recursive properties
+            for (int i = 0; i < 10 && s.contains("${"); i++) {
+                final Matcher matcher = NODE_VARIABLE.matcher(s);
+                final StringBuffer buffer = new StringBuffer();
+                boolean replaced = false;
+                while (matcher.find()) {
+                    final String value = property(matcher.group(1));
+                    if (value != null) {
+                        replaced = true;
+                    }
+                    matcher.appendReplacement(buffer, Matcher.quoteReplacement(value != null ? value : matcher.group()));
+                }
+                matcher.appendTail(buffer);
+                s = buffer.toString();
+                if (!replaced) {
+                    break;
+                }
+            }
+            return s;
+        }
+
+        /**
+         * Get the value of a property or project information.
+         *
+         * @param key the property key.
+         * @return    a property value or null.
+         */
+        private String property(String key) {
+            // Properties from child pom override the parent ones
+            for (Pom pom = this; pom != null; pom = pom.parentPom) {
+                final String value = pom.properties.get(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+            if (key.startsWith("project.") || key.startsWith("pom.")) {
+                key = key.substring(key.indexOf('.') + 1);
+            }
+            switch (key) {
+                case "groupId":
+                    return getGroupId();
+                case "artifactId":
+                    return artifactId;
+                case "version":
+                    return getVersion();
+                case "packaging":
+                    return getPackaging();
+                case "parent.groupId":
+                    return parent == null ? null : parent.groupId;
+                case "parent.artifactId":
+                    return parent == null ? null : parent.artifactId;
+                case "parent.version":
+                    return parent == null ? null : parent.version;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Artifact information from pom, like a dependency, an exclusion or the parent.
+         */
+        public static class Artifact {
+            private String groupId;
+            private String artifactId;
+            private String version;
+            private String type;
+            private String classifier;
+            private String scope;
+            private boolean optional;
+            private final List<Artifact> exclusions = new ArrayList<>(0);
+
+            /**
+             * Get the artifact group id.
+             *
+             * @return a group id or null.
+             */
+            public String getGroupId() {
+                return groupId;
+            }
+
+            /**
+             * Get the artifact id.
+             *
+             * @return an artifact id or null.
+             */
+            public String getArtifactId() {
+                return artifactId;
+            }
+
+            /**
+             * Get the artifact version.
+             *
+             * @return a version or null.
+             */
+            public String getVersion() {
+                return version;
+            }
+
+            /**
+             * Get the artifact type.
+             *
+             * @return a type or null.
+             */
+            public String getType() {
+                return type;
+            }
+
+            /**
+             * Get the artifact classifier.
+             *
+             * @return a classifier or null.
+             */
+            public String getClassifier() {
+                return classifier;
+            }
+
+            /**
+             * Get the artifact scope.
+             *
+             * @return a scope or null.
+             */
+            public String getScope() {
+                return scope;
+            }
+
+            /**
+             * Check if the artifact is optional.
+             *
+             * @return true if the artifact is optional.
+             */
+            public boolean isOptional() {
+                return optional;
+            }
+
+            /**
+             * Get the artifact exclusions.
+             *
+             * @return a list of excluded artifacts.
+             */
+            public List<Artifact> getExclusions() {
+                return exclusions;
+            }
+
+            @Override
+            public String toString() {
+                return groupId + ':' + artifactId + ':' + version;
+            }
+        }
+    }
+
+    /**
+     * Compact maven metadata model with the versioning information.
+     */
+    public static class Metadata {
+        private final Map<String, List<String>> versioning = new HashMap<>();
+
+        /**
+         * Read maven metadata from file.
+         *
+         * @param file the file to read.
+         * @return     a metadata object represented by file.
+         * @throws IOException if any error occurs while reading.
+         */
+        public static Metadata read(File file) throws IOException {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                return read(in);
+            }
+        }
+
+        /**
+         * Read maven metadata from input stream.
+         *
+         * @param in the input stream to read.
+         * @return   a metadata object represented by input stream.
+         * @throws IOException if any error occurs while reading.
+         */
+        public static Metadata read(InputStream in) throws IOException {
+            final Metadata metadata = new Metadata();
+            readXml(in, path -> {}, metadata::end);
+            return metadata;
+        }
+
+        private void end(String path, String text) {
+            // Only leaf nodes inside "metadata/versioning/" are saved
+            if (text.isEmpty() || !path.startsWith("metadata/versioning/")) {
+                return;
+            }
+            versioning.computeIfAbsent(path.substring(20).replace('/', '.'), key -> new ArrayList<>(1)).add(text);
+        }
+
+        /**
+         * Check if the metadata doesn't have versioning information.
+         *
+         * @return true if versioning is empty.
+         */
+        public boolean isEmpty() {
+            return versioning.isEmpty();
+        }
+
+        /**
+         * Get text from versioning path, for example "release" or "snapshot.timestamp".<br>
+         * The last key can be an index to get a repeated node, like "versions.version.-1" to get the last version.
+         *
+         * @param path the key path inside versioning.
+         * @return     a text from provided path or null.
+         */
+        public String get(String... path) {
+            int index = 0;
+            int length = path.length;
+            if (length > 1) {
+                try {
+                    index = Integer.parseInt(path[length - 1]);
+                    length--;
+                } catch (NumberFormatException ignored) { }
+            }
+            final String key = String.join(".", Arrays.asList(path).subList(0, length));
+            List<String> list = versioning.get(key);
+            if (list == null) {
+                // Same as nested node lookup
+                for (Map.Entry<String, List<String>> entry : versioning.entrySet()) {
+                    if (entry.getKey().endsWith('.' + key)) {
+                        list = entry.getValue();
+                        break;
+                    }
+                }
+                if (list == null) {
+                    return null;
+                }
+            }
+            if (index < 0) {
+                index = list.size() + index;
+            }
+            return index >= 0 && index < list.size() ? list.get(index) : null;
+        }
+
+        /**
+         * Get all the available versions.
+         *
+         * @return a list of versions.
+         */
+        public List<String> getVersions() {
+            return versioning.getOrDefault("versions.version", Collections.emptyList());
+        }
+    }
+
+    /**
+     * Minimal JSON reader and writer used for ezlib loader files.
+     */
+    static final class Json {
+
+        private final Reader reader;
+        private int c;
+
+        private Json(Reader reader) throws IOException {
+            this.reader = reader;
+            next();
+        }
+
+        /**
+         * Read a JSON value as maps, lists, strings, numbers, booleans or null.
+         *
+         * @param reader the reader to read.
+         * @return       a parsed JSON value.
+         * @throws IOException if any error occurs while reading.
+         */
+        static Object read(Reader reader) throws IOException {
+            final Json json = new Json(reader instanceof BufferedReader ? reader : new BufferedReader(reader));
+            final Object value = json.readValue();
+            json.skipWhitespace();
+            if (json.c != -1) {
+                throw json.error("Unexpected character");
+            }
+            return value;
+        }
+
+        /**
+         * Write a JSON value from maps, collections, strings, numbers, booleans or null.
+         *
+         * @param value  the value to write.
+         * @param writer the writer to append the value.
+         * @throws IOException if any error occurs while writing.
+         */
+        static void write(Object value, Writer writer) throws IOException {
+            write(value, writer, "");
+            writer.write('\n');
+        }
+
+        private static void write(Object value, Writer writer, String indent) throws IOException {
+            if (value instanceof Map) {
+                final Map<?, ?> map = (Map<?, ?>) value;
+                if (map.isEmpty()) {
+                    writer.write("{}");
+                    return;
+                }
+                writer.write('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writer.write(first ? "\n" : ",\n");
+                    writer.write(indent + "  ");
+                    writeString(String.valueOf(entry.getKey()), writer);
+                    writer.write(": ");
+                    write(entry.getValue(), writer, indent + "  ");
+                    first = false;
+                }
+                writer.write('\n' + indent + '}');
+            } else if (value instanceof Collection) {
+                final Collection<?> collection = (Collection<?>) value;
+                if (collection.isEmpty()) {
+                    writer.write("[]");
+                    return;
+                }
+                writer.write('[');
+                boolean first = true;
+                for (Object o : collection) {
+                    writer.write(first ? "\n" : ",\n");
+                    writer.write(indent + "  ");
+                    write(o, writer, indent + "  ");
+                    first = false;
+                }
+                writer.write('\n' + indent + ']');
+            } else if (value instanceof Number || value instanceof Boolean || value == null) {
+                writer.write(String.valueOf(value));
+            } else {
+                writeString(String.valueOf(value), writer);
+            }
+        }
+
+        private static void writeString(String s, Writer writer) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                final char c = s.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+
+        private void next() throws IOException {
+            c = reader.read();
+        }
+
+        private void skipWhitespace() throws IOException {
+            while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                next();
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + (c == -1 ? " at end of input" : " '" + (char) c + "'"));
+        }
+
+        private Object readValue() throws IOException {
+            skipWhitespace();
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    readWord("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    readWord("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    readWord("null");
+                    return null;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw error("Unexpected character");
+            }
+        }
+
+        private Map<String, Object> readObject() throws IOException {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            next();
+            skipWhitespace();
+            if (c == '}') {
+                next();
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (c != '"') {
+                    throw error("Expected object key but found");
+                }
+                final String key = readString();
+                skipWhitespace();
+                if (c != ':') {
+                    throw error("Expected ':' but found");
+                }
+                next();
+                map.put(key, readValue());
+                skipWhitespace();
+                if (c == ',') {
+                    next();
+                } else if (c == '}') {
+                    next();
+                    return map;
+                } else {
+                    throw error("Expected ',' or '}' but found");
+                }
+            }
+        }
+
+        private List<Object> readArray() throws IOException {
+            final List<Object> list = new ArrayList<>();
+            next();
+            skipWhitespace();
+            if (c == ']') {
+                next();
+                return list;
+            }
+            while (true) {
+                list.add(readValue());
+                skipWhitespace();
+                if (c == ',') {
+                    next();
+                } else if (c == ']') {
+                    next();
+                    return list;
+                } else {
+                    throw error("Expected ',' or ']' but found");
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            final StringBuilder builder = new StringBuilder();
+            next();
+            while (c != '"') {
+                if (c == -1) {
+                    throw error("Unterminated string");
+                }
+                if (c == '\\') {
+                    next();
+                    switch (c) {
+                        case 'b':
+                            builder.append('\b');
+                            break;
+                        case 'f':
+                            builder.append('\f');
+                            break;
+                        case 'n':
+                            builder.append('\n');
+                            break;
+                        case 'r':
+                            builder.append('\r');
+                            break;
+                        case 't':
+                            builder.append('\t');
+                            break;
+                        case 'u':
+                            final char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) {
+                                next();
+                                hex[i] = (char) c;
+                            }
+                            try {
+                                builder.append((char) Integer.parseInt(new String(hex), 16));
+                            } catch (NumberFormatException e) {
+                                throw error("Invalid unicode escape");
+                            }
+                            break;
+                        default:
+                            builder.append((char) c);
+                    }
+                } else {
+                    builder.append((char) c);
+                }
+                next();
+            }
+            next();
+            return builder.toString();
+        }
+
+        private Number readNumber() throws IOException {
+            final StringBuilder builder = new StringBuilder();
+            boolean decimal = false;
+            while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+                if (c == '.' || c == 'e' || c == 'E') {
+                    decimal = true;
+                }
+                builder.append((char) c);
+                next();
+            }
+            try {
+                return decimal ? (Number) Double.parseDouble(builder.toString()) : (Number) Long.parseLong(builder.toString());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid number '" + builder + "'");
+            }
+        }
+
+        private void readWord(String word) throws IOException {
+            for (int i = 0; i < word.length(); i++) {
+                if (c != word.charAt(i)) {
+                    throw error("Expected '" + word + "' but found");
+                }
+                next();
+            }
+        }
+    }
+
+    /**
+     * Compact line-based reader for ezlib loader files.<br>
+     * Every line is a record type followed by tab-separated fields, like:
+     * <pre>
+     * repository    url=https://repo.maven.apache.org/maven2/
+     * relocation    com.example    myproject.libs.example
+     * dependency    path=com.example:lib:1.0    condition=java &gt;= 11    relocate=com.other myproject.libs.other
+     * graph         overrides=com.example:other:2.0 -&gt; 1.0
+     * node          path=com.example:lib:1.0    sha1=...    size=1024
+     * </pre>
+     * Fields without value are true flags, repeated keys are joined into a list and keys with dots
+     * are nested objects, so the result is the same map representation of JSON files.
+     */
+    static final class Descriptor {
+
+        private static final Set<String> LISTS = new HashSet<>(Arrays.asList("include", "scopes", "test", "condition", "exclude", "dependencies", "overrides"));
+        private static final Set<String> MAPS = new HashSet<>(Arrays.asList("relocate", "relocations"));
+
+        /**
+         * Read a compact descriptor as dependencies map representation.
+         *
+         * @param reader the reader to read.
+         * @return       a map with repositories, dependencies, relocations and graph.
+         * @throws IOException if any error occurs while reading.
+         */
+        @SuppressWarnings("unchecked")
+        static Map<String, Object> read(Reader reader) throws IOException {
+            final BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            final Map<String, Object> result = new LinkedHashMap<>();
+            Map<String, Object> graph = null;
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                final String[] fields = line.split("\t");
+                try {
+                    switch (fields[0]) {
+                        case "repository":
+                            add(result, "repositories", record(fields));
+                            break;
+                        case "dependency":
+                            add(result, "dependencies", record(fields));
+                            break;
+                        case "relocation":
+                            if (fields.length != 3) {
+                                throw new IOException("Expected relocation with 2 packages");
+                            }
+                            ((Map<String, Object>) result.computeIfAbsent("relocations", key -> new LinkedHashMap<>())).put(unescape(fields[1]), unescape(fields[2]));
+                            break;
+                        case "graph":
+                            graph = record(fields);
+                            result.put("graph", graph);
+                            break;
+                        case "node":
+                            if (graph == null) {
+                                graph = new LinkedHashMap<>();
+                                result.put("graph", graph);
+                            }
+                            add(graph, "dependencies", record(fields));
+                            break;
+                        default:
+                            // Unknown records are ignored to read files from newer versions
+                            break;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    throw new IOException("Invalid line " + number + ": " + e.getMessage(), e);
+                }
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> record(String[] fields) {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 1; i < fields.length; i++) {
+                final String field = fields[i];
+                if (field.isEmpty()) {
+                    continue;
+                }
+                final int index = field.indexOf('=');
+                String key = index < 0 ? field : field.substring(0, index);
+                Map<String, Object> target = map;
+                int dot;
+                while ((dot = key.indexOf('.')) > 0) {
+                    target = (Map<String, Object>) target.computeIfAbsent(key.substring(0, dot), k -> new LinkedHashMap<>());
+                    key = key.substring(dot + 1);
+                }
+                put(target, key, index < 0 ? null : unescape(field.substring(index + 1)));
+            }
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void put(Map<String, Object> map, String key, String value) {
+            if (value == null) {
+                map.put(key, true);
+            } else if (LISTS.contains(key)) {
+                add(map, key, value);
+            } else if (MAPS.contains(key)) {
+                final int index = value.indexOf(' ');
+                if (index < 1) {
+                    throw new IllegalArgumentException("Expected relocation with 2 packages at '" + key + "'");
+                }
+                ((Map<String, Object>) map.computeIfAbsent(key, k -> new LinkedHashMap<>())).put(value.substring(0, index), value.substring(index + 1).trim());
+            } else if (value.equals("true") || value.equals("false")) {
+                map.put(key, Boolean.valueOf(value));
+            } else if (key.equals("size")) {
+                map.put(key, Long.parseLong(value));
+            } else {
+                map.put(key, value);
             }
         }
-        if (isInvalid(groupId) || isInvalid(artifactId) || isInvalid(version)) {
-            return null;
+
+        @SuppressWarnings("unchecked")
+        private static void add(Map<String, Object> map, String key, Object value) {
+            ((List<Object>) map.computeIfAbsent(key, k -> new ArrayList<>())).add(value);
+        }
+
+        private static String unescape(String s) {
+            if (s.indexOf('\\') < 0) {
+                return s;
+            }
+            final StringBuilder builder = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '\\' && i + 1 < s.length()) {
+                    c = s.charAt(++i);
+                    switch (c) {
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                builder.append(c);
+            }
+            return builder.toString();
         }
-        return groupId + ':' + artifactId + ':' + version;
     }
 
-    private static Map<String, String> parseRelocations(String... relocations) {
-        final Map<String, String> map = new HashMap<>();
-        if (relocations.length < 2) {
-            return map;
+    /**
+     * Version mediation used when the same artifact is required with different versions.
+     */
+    public enum Mediation {
+        /**
+         * Load every required version.
+         */
+        NONE,
+        /**
+         * Use the version declared closest to loaded dependencies, like maven.
+         */
+        NEAREST,
+        /**
+         * Use the highest required version.
+         */
+        HIGHEST
+    }
+
+    /**
+     * Method used to test if a class exists in class loader.
+     */
+    public enum ClassProbe {
+        /**
+         * Look for the class file as resource, so the class is not loaded.
+         */
+        RESOURCE,
+        /**
+         * Load the class without initialize it.
+         */
+        LOAD,
+        /**
+         * Load and initialize the class.
+         */
+        INITIALIZE
+    }
+
+    /**
+     * Dependency node inside resolved graph.
+     */
+    private static final class GraphNode {
+        private final Mediation mediation;
+        private final Dependency dependency;
+        private final int depth;
+        private final List<GraphNode> children = new ArrayList<>();
+        private Repository repository;
+        private String path;
+        private Pom pom;
+
+        private GraphNode(Mediation mediation, Dependency dependency, int depth) {
+            this.mediation = mediation;
+            this.dependency = dependency;
+            this.depth = depth;
         }
-        try {
-            for (int i = 0; i < relocations.length; i = i + 2) {
-                map.put(relocations[i], relocations[i + 1]);
+
+        private String getPath() {
+            return path != null ? path : dependency.path;
+        }
+
+        private String key() {
+            if (mediation == Mediation.NONE) {
+                return getPath() + ' ' + dependency.inner + ' ' + dependency.relocate;
+            }
+            // Same artifact with different relocations or class loader is a different dependency
+            return id(getPath()) + ' ' + dependency.inner + ' ' + (dependency.relocate == null ? "{}" : new TreeMap<>(dependency.relocate));
+        }
+
+        private String version() {
+            try {
+                return Ezlib.Coordinate.of(getPath()).getVersion();
+            } catch (IllegalArgumentException e) {
+                return null;
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            new IllegalArgumentException("Invalid relocation: [" + String.join(", ", relocations) + "]").printStackTrace();
         }
-        return map;
     }
 
-    private static boolean hasParams(Type type, Class<?>... params) {
-        if (type instanceof ParameterizedType) {
-            final ParameterizedType paramType = (ParameterizedType) type;
-            if (paramType.getActualTypeArguments().length == params.length) {
-                for (int i = 0; i < params.length; i++) {
-                    final Class<?> actualParam = (Class<?>) paramType.getActualTypeArguments()[i];
-                    if (!params[i].isAssignableFrom(actualParam) || params[i] != actualParam) {
-                        return false;
+    /**
+     * Text replacements compiled into a first char dispatch table, so any string is replaced in a single pass.
+     */
+    private static final class Replacer {
+
+        private final String[][] ascii = new String[128][];
+        private final Map<Character, String[]> others = new HashMap<>();
+        private final Map<String, String> replaces;
+
+        private Replacer(Map<String, String> replaces) {
+            final Map<Character, List<String>> targets = new HashMap<>();
+            for (String target : replaces.keySet()) {
+                if (!target.isEmpty()) {
+                    targets.computeIfAbsent(target.charAt(0), c -> new ArrayList<>()).add(target);
+                }
+            }
+            for (Map.Entry<Character, List<String>> entry : targets.entrySet()) {
+                // Longest target first
+                final List<String> list = entry.getValue();
+                list.sort((a, b) -> Integer.compare(b.length(), a.length()));
+                final String[] array = list.toArray(new String[0]);
+                final char c = entry.getKey();
+                if (c < ascii.length) {
+                    ascii[c] = array;
+                } else {
+                    others.put(c, array);
+                }
+            }
+            // Replacements can use other targets, like "{package}{}libs"
+            final Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, String> entry : replaces.entrySet()) {
+                values.put(entry.getKey(), replace(entry.getValue(), replaces));
+            }
+            this.replaces = values;
+        }
+
+        private String replace(String s) {
+            return replace(s, replaces);
+        }
+
+        private String replace(String s, Map<String, String> replaces) {
+            StringBuilder builder = null;
+            int last = 0;
+            int i = 0;
+            while (i < s.length()) {
+                final char c = s.charAt(i);
+                final String[] targets = c < ascii.length ? ascii[c] : others.get(c);
+                String found = null;
+                if (targets != null) {
+                    for (String target : targets) {
+                        if (s.startsWith(target, i)) {
+                            found = target;
+                            break;
+                        }
                     }
                 }
-                return true;
+                if (found == null) {
+                    i++;
+                    continue;
+                }
+                if (builder == null) {
+                    builder = new StringBuilder(s.length() + 16);
+                }
+                builder.append(s, last, i).append(replaces.get(found));
+                i += found.length();
+                last = i;
             }
+            return builder == null ? s : builder.append(s, last, s.length()).toString();
         }
-        return false;
     }
 
-    private static boolean isInvalid(String s) {
-        return s == null || s.trim().isEmpty() || s.equals("null") || s.equals("*");
+    /**
+     * Loaded dependencies in declaration order, indexed by group and artifact.
+     */
+    private static final class DependencyRegistry extends AbstractList<Dependency> {
+
+        private final List<Dependency> list = new ArrayList<>();
+        private final Map<String, List<Dependency>> index = new HashMap<>();
+
+        @Override
+        public Dependency get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Dependency)) {
+                return false;
+            }
+            final List<Dependency> same = index.get(((Dependency) o).coordinate());
+            return same != null && same.contains(o);
+        }
+
+        @Override
+        public boolean add(Dependency dependency) {
+            final List<Dependency> same = index.computeIfAbsent(dependency.coordinate(), key -> new ArrayList<>(1));
+            if (same.contains(dependency)) {
+                return false;
+            }
+            same.add(dependency);
+            list.add(dependency);
+            modCount++;
+            return true;
+        }
     }
 
     /**
-     * The XML parser to handle documents.
+     * Measured information about requests made to a repository.
      */
-    public static class XmlParser {
-        private final DocumentBuilder docBuilder;
+    private static class RepositoryStats {
+        // Old results lose weight, so a recovered repository can go up again
+        private static final long MAX_REQUESTS = 200;
+        private static final double LATENCY_WEIGHT = 0.2;
+
+        private long requests;
+        private long hits;
+        private long misses;
+        private long errors;
+        private double latency = -1;
+
+        private static RepositoryStats valueOf(String s) {
+            final String[] split = s.trim().split(" ");
+            if (split.length < 5) {
+                return null;
+            }
+            try {
+                final RepositoryStats stats = new RepositoryStats();
+                stats.requests = Long.parseLong(split[0]);
+                stats.hits = Long.parseLong(split[1]);
+                stats.misses = Long.parseLong(split[2]);
+                stats.errors = Long.parseLong(split[3]);
+                stats.latency = Double.parseDouble(split[4]);
+                return stats;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private synchronized void record(int code, double millis, boolean content) {
+            latency = latency < 0 ? millis : latency + LATENCY_WEIGHT * (millis - latency);
+            if (code >= 500) {
+                errors++;
+            } else if (content) {
+                if (code == 404 || code == 410) {
+                    misses++;
+                } else if (code < 400) {
+                    hits++;
+                }
+            }
+            count();
+        }
+
+        private synchronized void error() {
+            errors++;
+            count();
+        }
+
+        private void count() {
+            if (++requests > MAX_REQUESTS) {
+                requests /= 2;
+                hits /= 2;
+                misses /= 2;
+                errors /= 2;
+            }
+        }
+
+        private synchronized double score() {
+            // Lower is better: the expected time to get a file from the repository
+            final double availability = (double) (requests - errors + 1) / (requests + 1);
+            final double hitRate = (double) (hits + 1) / (hits + misses + 2);
+            return Math.max(latency, 1.0) / (availability * availability * hitRate);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return requests + " " + hits + " " + misses + " " + errors + " " + Math.round(latency * 100) / 100.0;
+        }
+    }
 
+    /**
+     * Resolved dependency graph that can be saved and executed later.<br>
+     * Nodes are ordered the same way as they are appended into class loader.
+     */
+    public static class DependencyGraph implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+        private final Map<String, String> relocations;
+        private final List<Node> nodes;
+        private final List<String> overrides;
 
         /**
-         * Constructs a XML parser with default document builder.
+         * Convert dependency graph map representation into {@link DependencyGraph}.
+         *
+         * @param map the map to deserialize.
+         * @return    a dependency graph object represented by map.
          */
-        public XmlParser() {
-            this(defaultBuilder());
+        @SuppressWarnings("unchecked")
+        public static DependencyGraph valueOf(Map<String, Object> map) {
+            final List<Node> nodes = new ArrayList<>();
+            final Object list = map.get("dependencies");
+            if (list instanceof Collection) {
+                for (Object node : (Collection<Object>) list) {
+                    nodes.add(Node.valueOf((Map<String, Object>) node));
+                }
+            }
+            return new DependencyGraph(
+                    (String) map.get("key"),
+                    (Map<String, String>) map.get("relocations"),
+                    nodes,
+                    (List<String>) map.get("overrides")
+            );
         }
 
         /**
-         * Consturcts a XML parser with provided document builder.
+         * Read dependency graph from JSON reader.
          *
-         * @param docBuilder the document builder to use.
+         * @param reader the reader to read.
+         * @return       a dependency graph object represented by JSON.
+         * @throws IOException if any error occurs while reading.
          */
-        public XmlParser(DocumentBuilder docBuilder) {
-            this.docBuilder = docBuilder;
+        @SuppressWarnings("unchecked")
+        public static DependencyGraph read(Reader reader) throws IOException {
+            final Object value = Json.read(reader);
+            if (!(value instanceof Map)) {
+                throw new IOException("The dependency graph must be a JSON object");
+            }
+            return valueOf((Map<String, Object>) value);
         }
 
-        private static DocumentBuilder defaultBuilder() {
-            try {
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                factory.setFeature("http://xml.org/sax/features/validation", false);
-                factory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
-                factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-                return factory.newDocumentBuilder();
-            } catch (ParserConfigurationException e) {
-                throw new RuntimeException("Cannot initialize document builder", e);
-            }
+        /**
+         * Constructs a dependency graph with provided information.
+         *
+         * @param key         the key that represent the information used to resolve the graph, can be null.
+         * @param relocations the global relocations to apply.
+         * @param nodes       the resolved nodes in appending order.
+         * @param overrides   the dependency versions that was replaced while resolving.
+         */
+        public DependencyGraph(String key, Map<String, String> relocations, List<Node> nodes, List<String> overrides) {
+            this.key = key;
+            this.relocations = relocations == null || relocations.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(relocations));
+            this.nodes = nodes == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(nodes));
+            this.overrides = overrides == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(overrides));
         }
 
         /**
-         * Get document from URL.
+         * Get the key that represent the loaded information used to resolve the graph.
          *
-         * @param url the URL to connect.
-         * @return     a parsed document from URL or null.
-         * @throws IOException  if an I/O exception occurs.
-         * @throws SAXException if any parse errors occur.
+         * @return a hashed key or null.
          */
-        public Document fromUrl(String url) throws IOException, SAXException {
-            final URLConnection con = new URL(url).openConnection();
-            con.addRequestProperty("Accept", "application/xml");
-            con.addRequestProperty("User-Agent", "Mozilla/5.0");
-            return docBuilder.parse(con.getInputStream());
+        public String getKey() {
+            return key;
         }
 
         /**
-         * Get document from file.
+         * Get the global relocations to apply on every node.
          *
-         * @param file the file to parse.
-         * @return     the provided file as document or null.
-         * @throws IOException  if an I/O exception occurs.
-         * @throws SAXException if any parse errors occur.
+         * @return an unmodifiable relocation map.
          */
-        public Document fromFile(File file) throws IOException, SAXException {
-            return docBuilder.parse(file.toURI().toURL().openStream());
+        public Map<String, String> getRelocations() {
+            return relocations;
         }
 
         /**
-         * Get document builder used to parse documents.
+         * Get the resolved nodes in appending order.
          *
-         * @return a document builder.
+         * @return an unmodifiable list of nodes.
          */
-        public DocumentBuilder getDocBuilder() {
-            return docBuilder;
+        public List<Node> getNodes() {
+            return nodes;
         }
 
         /**
-         * Get node from element at provided path.
+         * Get the node that represent the provided dependency path.
          *
-         * @param element the element to see.
-         * @param path    the key path.
-         * @return        a node from provided path or null.
+         * @param path the dependency gradle-like path, resolved or requested.
+         * @return     a graph node if exists, null otherwise.
          */
-        public Node getNode(Element element, String... path) {
-            Element node = element;
-            for (int i = 0; i < path.length; i++) {
-                String key = path[i];
-                // Try to get from child nodes
-                NodeList list = node.getChildNodes();
-                boolean found = false;
-                for (int i1 = 0; i1 < list.getLength(); i1++) {
-                    Node n = list.item(i1);
-                    // Compare name with key
-                    if (n.getNodeName().equals(key)) {
-                        if (n instanceof Element) {
-                            node = (Element) n;
-                            found = true;
-                            break;
-                        }
-                        if (i + 1 >= path.length) {
-                            return n;
-                        } else {
-                            return null;
-                        }
-                    }
-                }
-                if (found) {
-                    continue;
-                }
-                // Try to get from node list
-                list = node.getElementsByTagName(key);
-                if (list.getLength() > 0) {
-                    Node n;
-                    if (i + 1 < path.length) {
-                        // Try to find index from next key
-                        String nextKey = path[i + 1];
-                        if (nextKey.equals("-1")) {
-                            // Latest index
-                            n = list.item(list.getLength() - 1);
-                            i++;
-                        } else {
-                            try {
-                                // Index number
-                                n = list.item(Integer.parseInt(nextKey));
-                                i++;
-                            } catch (NumberFormatException e) {
-                                n = list.item(0);
-                            }
-                        }
-                    } else {
-                        n = list.item(0);
-                    }
-                    if (n instanceof Element) {
-                        node = (Element) n;
-                        continue;
-                    }
-                    if (i + 1 >= path.length) {
-                        return n;
-                    } else {
-                        return null;
-                    }
-                } else {
-                    return null;
+        public Node getNode(String path) {
+            for (Node node : nodes) {
+                if (node.path.equals(path) || path.equals(node.requested)) {
+                    return node;
                 }
             }
-            return node;
+            return null;
         }
 
         /**
-         * Get element inside element at provided path.
+         * Get the version conflicts that was solved while resolving, formatted as "path -> version".
          *
-         * @param element the element to see.
-         * @param path    the key path.
-         * @return        a element from provided path or null.
+         * @return an unmodifiable list of overrides.
          */
-        public Element getElement(Element element, String... path) {
-            final Node node = getNode(element, path);
-            return node instanceof Element ? (Element) node : null;
+        public List<String> getOverrides() {
+            return overrides;
         }
 
         /**
-         * Get element list from provided element path by tag name.
+         * Convert the current graph into map representation.
          *
-         * @param element the element to see.
-         * @param tag     the tag name to match elements.
-         * @param path    the key path.
-         * @return        a list containing all the found nodes.
+         * @return a map that represent the current graph.
          */
-        public List<Element> getElements(Element element, String tag, String... path) {
-            final List<Element> elements = new ArrayList<>();
-            Node node = getElement(element, path);
-            if (node == null) {
-                return elements;
+        public Map<String, Object> asMap() {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            if (key != null) {
+                map.put("key", key);
             }
-            NodeList list = ((Element) node).getElementsByTagName(tag);
-            for (int i = 0; i < list.getLength(); i++) {
-                node = list.item(i);
-                if (node instanceof Element) {
-                    elements.add((Element) node);
-                }
+            if (!relocations.isEmpty()) {
+                map.put("relocations", new TreeMap<>(relocations));
             }
-            return elements;
+            if (!overrides.isEmpty()) {
+                map.put("overrides", overrides);
+            }
+            final List<Object> list = new ArrayList<>();
+            for (Node node : nodes) {
+                list.add(node.asMap());
+            }
+            map.put("dependencies", list);
+            return map;
         }
 
         /**
-         * Get text content from element path.
+         * Write the current graph as JSON.
          *
-         * @param document the full document if the text content have any node variable to parse.
-         * @param element  the element to see.
-         * @param path     the key path.
-         * @return         a parsed string representing the found text from node at path or null.
+         * @param writer the writer to use.
+         * @throws IOException if any error occurs while writing.
          */
-        public String getTextContent(Element document, Element element, String... path) {
-            return getTextContentOrDefault(document, element, null, path);
+        public void write(Writer writer) throws IOException {
+            Json.write(asMap(), writer);
+        }
+
+        @Override
+        public String toString() {
+            return "DependencyGraph{" +
+                    "key='" + key + '\'' +
+                    ", relocations=" + relocations +
+                    ", nodes=" + nodes +
+                    ", overrides=" + overrides +
+                    '}';
         }
 
         /**
-         * Get text content from element path or use default value if node don't exists.
-         *
-         * @param document the full document if the text content have any node variable to parse.
-         * @param element  the element to see.
-         * @param def      the default text.
-         * @param path     the key path.
-         * @return         a parsed string representing the found text from node at path or null.
+         * Resolved dependency inside graph.
          */
-        public String getTextContentOrDefault(Element document, Element element, String def, String... path) {
-            Node node = getNode(element, path);
-            if (node == null) {
-                return def;
+        public static class Node implements Serializable {
+
+            private static final long serialVersionUID = 1L;
+
+            private final String path;
+            private final String requested;
+            private final String repository;
+            private final String format;
+            private final String file;
+            private final Map<String, String> relocate;
+            private final boolean inner;
+            private final boolean optional;
+            private final boolean transitive;
+            private final boolean snapshot;
+            private final Set<String> scopes;
+            private final Set<String> exclude;
+            private final List<String> dependencies;
+            private final String sha1;
+            private final long size;
+
+            @SuppressWarnings("unchecked")
+            private static Node valueOf(Map<String, Object> map) {
+                final Collection<String> scopes = (Collection<String>) map.get("scopes");
+                final Collection<String> exclude = (Collection<String>) map.get("exclude");
+                final Object size = map.get("size");
+                return new Node(
+                        (String) map.get("path"),
+                        (String) map.get("requested"),
+                        (String) map.get("repository"),
+                        (String) map.get("format"),
+                        (String) map.get("file"),
+                        (Map<String, String>) map.get("relocate"),
+                        (boolean) map.getOrDefault("inner", false),
+                        (boolean) map.getOrDefault("optional", false),
+                        (boolean) map.getOrDefault("transitive", false),
+                        (boolean) map.getOrDefault("snapshot", false),
+                        scopes == null ? null : new HashSet<>(scopes),
+                        exclude == null ? null : new HashSet<>(exclude),
+                        (List<String>) map.get("dependencies"),
+                        (String) map.get("sha1"),
+                        size instanceof Number ? ((Number) size).longValue() : 0L
+                );
             }
-            String s = node.getTextContent();
-            if (s == null) {
-                return null;
+
+            /**
+             * Constructs a graph node with provided information.
+             *
+             * @param path         the resolved dependency gradle-like path.
+             * @param requested    the requested path if it's different from resolved path, can be null.
+             * @param repository   the repository url to download the dependency, can be null.
+             * @param format       the repository url format, can be null.
+             * @param file         the expected file relative to ezlib folder, can be null.
+             * @param relocate     the dependency relocations.
+             * @param inner        true to append the dependency into inner class loader.
+             * @param optional     true if the dependency is optional.
+             * @param transitive   true if sub-dependencies must be resolved while the node is executed.
+             * @param snapshot     true if the latest snapshot must be resolved while the node is executed.
+             * @param scopes       the scopes to use on sub-dependencies resolved while executing.
+             * @param exclude      the excluded sub-dependencies while executing.
+             * @param dependencies the resolved sub-dependency paths.
+             */
+            public Node(String path, String requested, String repository, String format, String file, Map<String, String> relocate, boolean inner, boolean optional, boolean transitive, boolean snapshot, Set<String> scopes, Set<String> exclude, List<String> dependencies) {
+                this(path, requested, repository, format, file, relocate, inner, optional, transitive, snapshot, scopes, exclude, dependencies, null, 0L);
             }
-            final Matcher matcher = NODE_VARIABLE.matcher(s);
-            while (matcher.find()) {
-                String match = matcher.group(1);
-                if (!match.startsWith("project.") && !match.startsWith("pom.")) {
-                    // Try to find at properties path
-                    final String result = getTextContent(document, document, "properties", match);
-                    if (result != null) {
-                        s = matcher.replaceFirst(result);
-                        continue;
+
+            /**
+             * Constructs a graph node with provided information and downloaded file checksum.
+             *
+             * @param path         the resolved dependency gradle-like path.
+             * @param requested    the requested path if it's different from resolved path, can be null.
+             * @param repository   the repository url to download the dependency, can be null.
+             * @param format       the repository url format, can be null.
+             * @param file         the expected file relative to ezlib folder, can be null.
+             * @param relocate     the dependency relocations.
+             * @param inner        true to append the dependency into inner class loader.
+             * @param optional     true if the dependency is optional.
+             * @param transitive   true if sub-dependencies must be resolved while the node is executed.
+             * @param snapshot     true if the latest snapshot must be resolved while the node is executed.
+             * @param scopes       the scopes to use on sub-dependencies resolved while executing.
+             * @param exclude      the excluded sub-dependencies while executing.
+             * @param dependencies the resolved sub-dependency paths.
+             * @param sha1         the SHA-1 checksum of dependency file, can be null.
+             * @param size         the dependency file size in bytes, 0 if it's unknown.
+             */
+            public Node(String path, String requested, String repository, String format, String file, Map<String, String> relocate, boolean inner, boolean optional, boolean transitive, boolean snapshot, Set<String> scopes, Set<String> exclude, List<String> dependencies, String sha1, long size) {
+                this.path = Objects.requireNonNull(path, "The dependency path cannot be null");
+                this.requested = requested;
+                this.repository = repository;
+                this.format = format;
+                this.file = file;
+                this.relocate = relocate == null || relocate.isEmpty() ? null : Collections.unmodifiableMap(new HashMap<>(relocate));
+                this.inner = inner;
+                this.optional = optional;
+                this.transitive = transitive;
+                this.snapshot = snapshot;
+                this.scopes = scopes == null || scopes.isEmpty() ? null : Collections.unmodifiableSet(new HashSet<>(scopes));
+                this.exclude = exclude == null || exclude.isEmpty() ? null : Collections.unmodifiableSet(new HashSet<>(exclude));
+                this.dependencies = dependencies == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(dependencies));
+                this.sha1 = sha1;
+                this.size = size;
+            }
+
+            /**
+             * Get the resolved dependency path.
+             *
+             * @return a gradle-like path.
+             */
+            public String getPath() {
+                return path;
+            }
+
+            /**
+             * Get the requested dependency path, like a version path that was resolved into concrete version.
+             *
+             * @return a gradle-like path or null if it's the same as resolved path.
+             */
+            public String getRequested() {
+                return requested;
+            }
+
+            /**
+             * Get the repository url to download the dependency.
+             *
+             * @return a repository url or null if the dependency will be looked up over loaded repositories.
+             */
+            public String getRepository() {
+                return repository;
+            }
+
+            /**
+             * Get the repository url format.
+             *
+             * @return an url format or null.
+             */
+            public String getFormat() {
+                return format;
+            }
+
+            /**
+             * Get the expected dependency file relative to ezlib folder.
+             *
+             * @return a file path or null if it cannot be known before execution.
+             */
+            public String getFile() {
+                return file;
+            }
+
+            /**
+             * Get the dependency relocations.
+             *
+             * @return an unmodifiable relocation map or null.
+             */
+            public Map<String, String> getRelocate() {
+                return relocate;
+            }
+
+            /**
+             * Get the current inner status.
+             *
+             * @return true if the dependency is appended into inner class loader.
+             */
+            public boolean isInner() {
+                return inner;
+            }
+
+            /**
+             * Get the current optional status.
+             *
+             * @return true if the dependency can fail without errors.
+             */
+            public boolean isOptional() {
+                return optional;
+            }
+
+            /**
+             * Get the current transitive status.<br>
+             * Only dependencies that cannot be resolved while planning are transitive.
+             *
+             * @return true if sub-dependencies will be resolved while executing.
+             */
+            public boolean isTransitive() {
+                return transitive;
+            }
+
+            /**
+             * Get the resolved sub-dependency paths.
+             *
+             * @return an unmodifiable list of paths.
+             */
+            public List<String> getDependencies() {
+                return dependencies;
+            }
+
+            /**
+             * Get the SHA-1 checksum of dependency file.
+             *
+             * @return a checksum as hex string or null if the graph was not pinned.
+             */
+            public String getSha1() {
+                return sha1;
+            }
+
+            /**
+             * Get the dependency file size.
+             *
+             * @return a size in bytes or 0 if it's unknown.
+             */
+            public long getSize() {
+                return size;
+            }
+
+            private boolean matches(Ezlib ezlib, File file) throws IOException {
+                return (size <= 0 || file.length() == size) && (sha1 == null || sha1.equalsIgnoreCase(ezlib.checksum(file)));
+            }
+
+            private Node relocate(Map<String, String> relocate) {
+                if (Objects.equals(this.relocate, relocate.isEmpty() ? null : relocate)) {
+                    return this;
+                }
+                return new Node(path, requested, repository, format, file, relocate, inner, optional, transitive, snapshot, scopes, exclude, dependencies, sha1, size);
+            }
+
+            private Node pin(String repository, String format, String file, String sha1, long size) {
+                return new Node(path, requested, repository, format, file, relocate, inner, optional, transitive, snapshot, scopes, exclude, dependencies, sha1, size);
+            }
+
+            private Dependency asDependency(Map<String, String> relocations) {
+                final Dependency dependency = new Dependency()
+                        .path(path)
+                        .inner(inner)
+                        .transitive(transitive)
+                        .snapshot(snapshot)
+                        .optional(optional);
+                if (repository != null) {
+                    final Repository repo = new Repository().url(repository);
+                    if (format != null) {
+                        repo.format(format);
                     }
-                } else {
-                    // Remove unused prefix
-                    match = match.substring(match.indexOf('.') + 1);
+                    dependency.repository(repo);
                 }
-                // Find at path
-                s = matcher.replaceFirst(String.valueOf(getTextContent(document, document, match.split("\\."))));
+                if (scopes != null) {
+                    dependency.scopes(new HashSet<>(scopes));
+                }
+                if (exclude != null) {
+                    dependency.exclude(new HashSet<>(exclude));
+                }
+                if (!relocations.isEmpty() || relocate != null) {
+                    final Map<String, String> map = new HashMap<>(relocations);
+                    if (relocate != null) {
+                        map.putAll(relocate);
+                    }
+                    dependency.relocate(map);
+                }
+                return dependency;
+            }
+
+            private Map<String, Object> asMap() {
+                final Map<String, Object> map = new LinkedHashMap<>();
+                map.put("path", path);
+                if (requested != null) {
+                    map.put("requested", requested);
+                }
+                if (repository != null) {
+                    map.put("repository", repository);
+                }
+                if (format != null) {
+                    map.put("format", format);
+                }
+                if (file != null) {
+                    map.put("file", file);
+                }
+                if (relocate != null) {
+                    map.put("relocate", new TreeMap<>(relocate));
+                }
+                if (inner) {
+                    map.put("inner", true);
+                }
+                if (optional) {
+                    map.put("optional", true);
+                }
+                if (transitive) {
+                    map.put("transitive", true);
+                }
+                if (snapshot) {
+                    map.put("snapshot", true);
+                }
+                if (scopes != null) {
+                    map.put("scopes", new ArrayList<>(new TreeSet<>(scopes)));
+                }
+                if (exclude != null) {
+                    map.put("exclude", new ArrayList<>(new TreeSet<>(exclude)));
+                }
+                if (!dependencies.isEmpty()) {
+                    map.put("dependencies", dependencies);
+                }
+                if (sha1 != null) {
+                    map.put("sha1", sha1);
+                }
+                if (size > 0) {
+                    map.put("size", size);
+                }
+                return map;
+            }
+
+            @Override
+            public String toString() {
+                return "Node{" +
+                        "path='" + path + '\'' +
+                        ", requested='" + requested + '\'' +
+                        ", repository='" + repository + '\'' +
+                        ", inner=" + inner +
+                        ", optional=" + optional +
+                        ", transitive=" + transitive +
+                        ", relocate=" + relocate +
+                        ", dependencies=" + dependencies +
+                        ", sha1='" + sha1 + '\'' +
+                        ", size=" + size +
+                        '}';
             }
-            return s;
         }
     }
 
@@ -1542,7 +5097,11 @@ public class EzlibLoader {
         private String name;
         private String url;
         private String format = "%group%/%artifact%/%version%/%artifact%-%fileVersion%.%fileType%";
+        private transient Ezlib.UrlFormat urlFormat;
         private boolean allowInsecureProtocol;
+        private String updatePolicy = "daily";
+        private Set<String> include;
+        private transient List<Pattern> includePatterns;
 
         /**
          * Convert repository annotation into {@link Repository}.<br>
@@ -1566,7 +5125,9 @@ public class EzlibLoader {
                     .name(repo.name())
                     .url(repo.url())
                     .format(repo.format())
-                    .allowInsecureProtocol(repo.allowInsecureProtocol());
+                    .allowInsecureProtocol(repo.allowInsecureProtocol())
+                    .updatePolicy(repo.updatePolicy())
+                    .include(repo.include());
         }
 
         /**
@@ -1575,12 +5136,23 @@ public class EzlibLoader {
          * @param map the map to deserialize.
          * @return    a repository object represented by map.
          */
+        @SuppressWarnings("unchecked")
         public static Repository valueOf(Map<String, Object> map) {
-            return new Repository()
+            final Repository repository = new Repository()
                     .name((String) map.get("name"))
                     .url((String) map.get("url"))
                     .format((String) map.getOrDefault("format", "%group%/%artifact%/%version%/%artifact%-%fileVersion%.%fileType%"))
-                    .allowInsecureProtocol((boolean) map.getOrDefault("allowInsecureProtocol", false));
+                    .allowInsecureProtocol((boolean) map.getOrDefault("allowInsecureProtocol", false))
+                    .updatePolicy((String) map.getOrDefault("updatePolicy", "daily"));
+
+            final Object include = map.get("include");
+            if (include instanceof Collection) {
+                repository.include(new HashSet<>((Collection<String>) include));
+            } else if (include instanceof String) {
+                repository.include((String) include);
+            }
+
+            return repository;
         }
 
         /**
@@ -1613,6 +5185,7 @@ public class EzlibLoader {
          */
         public Repository format(String format) {
             this.format = format;
+            this.urlFormat = null;
             return this;
         }
 
@@ -1627,6 +5200,97 @@ public class EzlibLoader {
             return this;
         }
 
+        /**
+         * Set the repository update policy to check for new metadata, like latest version or snapshot information.<br>
+         * The accepted values are the same as maven: "always", "daily", "interval:X" (in minutes) and "never".
+         *
+         * @param updatePolicy the update policy to use with cached metadata.
+         * @return             the current repository object.
+         */
+        public Repository updatePolicy(String updatePolicy) {
+            this.updatePolicy = updatePolicy;
+            return this;
+        }
+
+        /**
+         * Set the dependency patterns that can be downloaded from this repository, for example "com.github.*"
+         * to include any group inside com.github or "com.saicone:ezlib" to include a single artifact.<br>
+         * Dependencies that don't match any pattern will be looked up on other repositories.
+         *
+         * @param include an array of group or group:artifact patterns.
+         * @return        the current repository object.
+         */
+        public Repository include(String... include) {
+            return include(Arrays.stream(include).collect(Collectors.toSet()));
+        }
+
+        /**
+         * Set the dependency patterns that can be downloaded from this repository.
+         *
+         * @param include a set of group or group:artifact patterns, null or empty to include any dependency.
+         * @return        the current repository object.
+         */
+        public Repository include(Set<String> include) {
+            this.include = include;
+            this.includePatterns = null;
+            return this;
+        }
+
+        private boolean includes(String path) {
+            if (include == null || include.isEmpty() || path == null) {
+                return true;
+            }
+            if (includePatterns == null) {
+                final List<Pattern> patterns = new ArrayList<>();
+                for (String s : include) {
+                    final StringBuilder builder = new StringBuilder();
+                    for (String part : s.trim().split("\\*", -1)) {
+                        if (builder.length() > 0) {
+                            builder.append(".*");
+                        }
+                        builder.append(Pattern.quote(part));
+                    }
+                    // Group patterns match any artifact
+                    patterns.add(Pattern.compile(s.indexOf(':') < 0 ? builder + "(:.*)?" : builder.toString()));
+                }
+                includePatterns = patterns;
+            }
+            final String id = id(path);
+            for (Pattern pattern : includePatterns) {
+                if (pattern.matcher(id).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Ezlib.UrlFormat urlFormat() {
+            if (urlFormat == null) {
+                urlFormat = Ezlib.UrlFormat.of(format);
+            }
+            return urlFormat;
+        }
+
+        private long updateInterval() {
+            if (updatePolicy == null) {
+                return 24L * 60 * 60 * 1000;
+            }
+            final String policy = updatePolicy.trim().toLowerCase();
+            switch (policy) {
+                case "always":
+                    return 0;
+                case "never":
+                    return -1;
+                default:
+                    if (policy.startsWith("interval:")) {
+                        try {
+                            return Long.parseLong(policy.substring(9).trim()) * 60 * 1000;
+                        } catch (NumberFormatException ignored) { }
+                    }
+                    return 24L * 60 * 60 * 1000;
+            }
+        }
+
         private boolean isValid() {
             return (name != null && !name.isEmpty()) || (url != null && !url.isEmpty());
         }
@@ -1668,6 +5332,10 @@ public class EzlibLoader {
         private Set<String> exclude;
         private Map<String, String> relocate;
 
+        // Cached lookup keys, reset when path or relocations change
+        private transient int hash;
+        private transient String coordinate;
+
         /**
          * Get ezlib annotations dependency compatible with current package relocations.
          *
@@ -1765,9 +5433,11 @@ public class EzlibLoader {
                 dependency.exclude(new HashSet<>(exclude));
             }
 
-            final Collection<String> relocate = (Collection<String>) map.get("relocate");
-            if (relocate != null && !relocate.isEmpty()) {
-                dependency.relocate(relocate.toArray(new String[0]));
+            final Object relocate = map.get("relocate");
+            if (relocate instanceof Map) {
+                dependency.relocate((Map<String, String>) relocate);
+            } else if (relocate instanceof Collection && !((Collection<?>) relocate).isEmpty()) {
+                dependency.relocate(((Collection<String>) relocate).toArray(new String[0]));
             }
 
             return dependency;
@@ -1781,7 +5451,7 @@ public class EzlibLoader {
          */
         public Dependency path(String path) {
             this.path = path;
-            return this;
+            return changed();
         }
 
         /**
@@ -1796,7 +5466,7 @@ public class EzlibLoader {
             } else {
                 this.path = group + this.path.substring(this.path.indexOf(':'));
             }
-            return this;
+            return changed();
         }
 
         /**
@@ -1810,7 +5480,7 @@ public class EzlibLoader {
             final int first = this.path.indexOf(':');
             if (first < 0) {
                 this.path = this.path + ":" + name;
-                return this;
+                return changed();
             }
             final int second = this.path.indexOf(':', first);
             if (second < 0) {
@@ -1818,7 +5488,7 @@ public class EzlibLoader {
             } else {
                 this.path = this.path.substring(0, first) + ":" + name + this.path.substring(second);
             }
-            return this;
+            return changed();
         }
 
         /**
@@ -1831,7 +5501,7 @@ public class EzlibLoader {
         public Dependency version(String version) {
             final int index = this.path.indexOf(':', this.path.indexOf(':'));
             this.path = path.substring(0, index) + ":" + version;
-            return this;
+            return changed();
         }
 
         /**
@@ -2005,28 +5675,42 @@ public class EzlibLoader {
         }
 
         /**
-         * Set the relocations.
+         * Set the relocations.<br>
+         * The provided map is copied, so sub-dependencies don't share the relocations of their parent.
          *
          * @param relocate package relocations.
          * @return         the current dependency object.
          */
         public Dependency relocate(Map<String, String> relocate) {
-            this.relocate = relocate;
+            this.relocate = relocate == null ? null : new HashMap<>(relocate);
+            return changed();
+        }
+
+        private Dependency changed() {
+            hash = 0;
+            coordinate = null;
             return this;
         }
 
+        private String coordinate() {
+            if (coordinate == null && path != null) {
+                coordinate = id(path);
+            }
+            return coordinate;
+        }
+
         private Repository mainRepository(EzlibLoader loader) {
             // Find any valid repository
             if (repository != null) {
                 // Using url
                 if (repository.url != null && !repository.url.isEmpty()) {
-                    return repository;
+                    return loader.route(repository, path);
                 }
                 // Using name
                 if (repository.name != null && !repository.name.isEmpty()) {
                     for (Repository repo : loader.repositories) {
                         if (repository.name.equalsIgnoreCase(repo.name)) {
-                            return repo;
+                            return repo.includes(path) ? repo : null;
                         }
                     }
                 }
@@ -2038,12 +5722,7 @@ public class EzlibLoader {
             if (test == null || test.isEmpty()) {
                 return false;
             }
-            for (String name : test) {
-                if (!loader.test(name, inner)) {
-                    return false;
-                }
-            }
-            return true;
+            return loader.test(test, inner);
         }
 
         private boolean isValidScope(String name) {
@@ -2100,8 +5779,12 @@ public class EzlibLoader {
 
         @Override
         public int hashCode() {
-            int result = path != null ? path.hashCode() : 0;
-            result = 31 * result + (relocate != null && !relocate.isEmpty() ? relocate.hashCode() : 0);
+            int result = hash;
+            if (result == 0) {
+                result = path != null ? path.hashCode() : 0;
+                result = 31 * result + (relocate != null && !relocate.isEmpty() ? relocate.hashCode() : 0);
+                hash = result;
+            }
             return result;
         }
     }
@@ -2113,6 +5796,7 @@ public class EzlibLoader {
         private List<Repository> repositories;
         private List<Dependency> dependencies;
         private Map<String, String> relocations;
+        private Map<String, Object> graph;
 
         /**
          * Convert dependencies annotation into {@link Dependencies}.<br>
@@ -2158,9 +5842,16 @@ public class EzlibLoader {
                 result.dependencies(dependencies.stream().map(Dependency::valueOf).collect(Collectors.toList()));
             }
 
-            final Collection<String> relocations = (Collection<String>) map.get("relocations");
-            if (relocations != null && !relocations.isEmpty()) {
-                result.relocations(relocations.toArray(new String[0]));
+            final Object relocations = map.get("relocations");
+            if (relocations instanceof Map) {
+                result.relocations(new HashMap<>((Map<String, String>) relocations));
+            } else if (relocations instanceof Collection && !((Collection<?>) relocations).isEmpty()) {
+                result.relocations(((Collection<String>) relocations).toArray(new String[0]));
+            }
+
+            final Map<String, Object> graph = (Map<String, Object>) map.get("graph");
+            if (graph != null && !graph.isEmpty()) {
+                result.graph = graph;
             }
 
             return result;
@@ -2229,6 +5920,17 @@ public class EzlibLoader {
             return this;
         }
 
+        /**
+         * Set the resolved graph, the dependencies that are part of the graph will not be resolved again.
+         *
+         * @param graph the resolved graph, can be null.
+         * @return      the current dependencies object.
+         */
+        public Dependencies graph(DependencyGraph graph) {
+            this.graph = graph == null ? null : graph.asMap();
+            return this;
+        }
+
         /**
          * Load all the loaded information into provided ezlib loader.
          *
@@ -2239,8 +5941,209 @@ public class EzlibLoader {
             loader.logger.accept(4, "Loading Dependencies into EzlibLoader");
             boolean relocation = loader.loadRelocations(relocations);
             boolean repository = loader.loadRepositories(repositories);
+            List<Dependency> dependencies = this.dependencies;
+            boolean resolved = false;
+            if (graph != null) {
+                final DependencyGraph graph = DependencyGraph.valueOf(this.graph);
+                resolved = loader.loadGraph(graph);
+                if (resolved && dependencies != null) {
+                    // Dependencies from resolved graph are kept for loaders that don't read the graph
+                    dependencies = dependencies.stream()
+                            .filter(dependency -> dependency.path == null || graph.getNode(loader.parse(dependency.path)) == null)
+                            .collect(Collectors.toList());
+                }
+            }
             boolean dependency = loader.loadDependencies(dependencies);
-            return relocation || repository || dependency;
+            return relocation || repository || resolved || dependency;
+        }
+    }
+
+    /**
+     * Compiled condition script, like "java >= 11 &amp;&amp; (os = linux || os = mac)".
+     */
+    private static final class Expression {
+
+        private static final int COMPARE = 0;
+        private static final int NOT = 1;
+        private static final int AND = 2;
+        private static final int OR = 3;
+
+        private final int type;
+        private final Expression left;
+        private final Expression right;
+        private final String name;
+        private final String value;
+        private final int expected;
+        private final boolean negate;
+
+        // Memoized result from constant condition
+        private volatile Condition<?> condition;
+        private volatile Boolean result;
+
+        private static Expression compile(String s) throws IllegalArgumentException {
+            final int[] index = new int[] {0};
+            final Expression expression = or(s, index);
+            skip(s, index);
+            if (index[0] < s.length()) {
+                throw new IllegalArgumentException("Unexpected '" + s.charAt(index[0]) + "' at index " + index[0]);
+            }
+            return expression;
+        }
+
+        private static Expression or(String s, int[] index) {
+            Expression expression = and(s, index);
+            while (consume(s, index, "||")) {
+                expression = new Expression(OR, expression, and(s, index));
+            }
+            return expression;
+        }
+
+        private static Expression and(String s, int[] index) {
+            Expression expression = unary(s, index);
+            while (consume(s, index, "&&")) {
+                expression = new Expression(AND, expression, unary(s, index));
+            }
+            return expression;
+        }
+
+        private static Expression unary(String s, int[] index) {
+            if (consume(s, index, "!")) {
+                return new Expression(NOT, unary(s, index), null);
+            }
+            if (consume(s, index, "(")) {
+                final Expression expression = or(s, index);
+                if (!consume(s, index, ")")) {
+                    throw new IllegalArgumentException("Missing ')' at index " + index[0]);
+                }
+                return expression;
+            }
+            return compare(s, index);
+        }
+
+        private static Expression compare(String s, int[] index) {
+            final int start = index[0];
+            int end = start;
+            int operator = -1;
+            // The comparison ends with logical operator or closing parenthesis
+            while (end < s.length()) {
+                final char c = s.charAt(end);
+                if (c == ')' || (end + 1 < s.length() && (c == '&' || c == '|') && s.charAt(end + 1) == c)) {
+                    break;
+                }
+                if (operator < 0 && end > start && (c == '=' || c == '!' || c == '>' || c == '<')) {
+                    operator = end;
+                }
+                end++;
+            }
+            index[0] = end;
+
+            if (operator < 0) {
+                final String name = s.substring(start, end).trim();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Missing condition at index " + start);
+                }
+                return new Expression(name.toLowerCase(), "true", Condition.EQUAL, false);
+            }
+            final String name = s.substring(start, operator).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Missing condition at index " + start);
+            }
+            final char c = s.charAt(operator);
+            final boolean equal = operator + 1 < end && s.charAt(operator + 1) == '=';
+            final String value = s.substring(equal ? operator + 2 : operator + 1, end).trim();
+            switch (c) {
+                case '>':
+                    return new Expression(name.toLowerCase(), value, equal ? Condition.GREATER_OR_EQUAL : Condition.GREATER, false);
+                case '<':
+                    return new Expression(name.toLowerCase(), value, equal ? Condition.LESS_OR_EQUAL : Condition.LESS, false);
+                case '!':
+                    return new Expression(name.toLowerCase(), value, Condition.EQUAL, true);
+                default:
+                    return new Expression(name.toLowerCase(), value, Condition.EQUAL, false);
+            }
+        }
+
+        private static boolean consume(String s, int[] index, String token) {
+            skip(s, index);
+            if (!s.startsWith(token, index[0])) {
+                return false;
+            }
+            index[0] += token.length();
+            return true;
+        }
+
+        private static void skip(String s, int[] index) {
+            while (index[0] < s.length() && Character.isWhitespace(s.charAt(index[0]))) {
+                index[0]++;
+            }
+        }
+
+        private Expression(int type, Expression left, Expression right) {
+            this.type = type;
+            this.left = left;
+            this.right = right;
+            this.name = null;
+            this.value = null;
+            this.expected = Condition.EQUAL;
+            this.negate = false;
+        }
+
+        private Expression(String name, String value, int expected, boolean negate) {
+            this.type = COMPARE;
+            this.left = null;
+            this.right = null;
+            this.name = name;
+            this.value = value;
+            this.expected = expected;
+            this.negate = negate;
+        }
+
+        private Boolean eval(Map<String, Condition<?>> conditions) {
+            switch (type) {
+                case NOT: {
+                    final Boolean result = left.eval(conditions);
+                    return result == null ? null : !result;
+                }
+                case AND: {
+                    // Unknown conditions only matter if the other side is true
+                    final Boolean first = left.eval(conditions);
+                    if (Boolean.FALSE.equals(first)) {
+                        return false;
+                    }
+                    final Boolean second = right.eval(conditions);
+                    if (Boolean.FALSE.equals(second)) {
+                        return false;
+                    }
+                    return first == null || second == null ? null : true;
+                }
+                case OR: {
+                    final Boolean first = left.eval(conditions);
+                    if (Boolean.TRUE.equals(first)) {
+                        return true;
+                    }
+                    final Boolean second = right.eval(conditions);
+                    if (Boolean.TRUE.equals(second)) {
+                        return true;
+                    }
+                    return first == null || second == null ? null : false;
+                }
+                default: {
+                    final Condition<?> condition = conditions.get(name);
+                    if (condition == null) {
+                        return null;
+                    }
+                    Boolean result = this.result;
+                    if (result != null && condition == this.condition) {
+                        return result;
+                    }
+                    result = condition.eval(expected, value) != negate;
+                    if (condition.isConstant()) {
+                        this.result = result;
+                        this.condition = condition;
+                    }
+                    return result;
+                }
+            }
         }
     }
 
@@ -2272,11 +6175,12 @@ public class EzlibLoader {
          */
         public static final int GREATER = 2;
 
-        private static final Condition<Boolean> TRUE = new Condition<>(s -> s.equals("true"), b -> b ? 0 : -1);
-        private static final Condition<Boolean> FALSE = new Condition<>(s -> s.equals("false"), b -> b ? 0 : -1);
+        private static final Condition<Boolean> TRUE = new Condition<>(s -> s.equals("true"), b -> b ? 0 : -1).constant(true);
+        private static final Condition<Boolean> FALSE = new Condition<>(s -> s.equals("false"), b -> b ? 0 : -1).constant(true);
 
         private final Function<String, T> mapper;
         private final Function<T, Integer> comparator;
+        private boolean constant;
 
         /**
          * Create a condition with a defined boolean value.
@@ -2407,6 +6311,27 @@ public class EzlibLoader {
             return comparator;
         }
 
+        /**
+         * Check if the current condition always return the same result for the same value.
+         *
+         * @return true if the condition result can be reused.
+         */
+        public boolean isConstant() {
+            return constant;
+        }
+
+        /**
+         * Set the constant status of the current condition.<br>
+         * A constant condition is evaluated once per script, like a condition that compare the java version.
+         *
+         * @param constant true if the condition result can be reused.
+         * @return         the current condition object.
+         */
+        public Condition<T> constant(boolean constant) {
+            this.constant = constant;
+            return this;
+        }
+
         /**
          * Evaluate if expected result is the same after compare converted string value.
          *
@@ -0,0 +1,112 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.Ezlib.Coordinate;
+import com.saicone.ezlib.Ezlib.Transport;
+import com.saicone.ezlib.Ezlib.UrlFormat;
+import com.saicone.ezlib.Ezlib.UrlTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChecksumTest {
+
+    private static final Coordinate COORDINATE = Coordinate.of("com.example:lib:1.0");
+    private static final String PATH = "com/example/lib/1.0/lib-1.0.jar";
+
+    private static File write(File folder, String path, String content) throws IOException {
+        final File file = new File(folder, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static String sha1(String content) throws NoSuchAlgorithmException {
+        return Ezlib.toHex(MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Transport counting(AtomicInteger count, Transport transport) {
+        return (method, url, headers) -> {
+            count.incrementAndGet();
+            return transport.request(method, url, headers);
+        };
+    }
+
+    private static File download(Ezlib ezlib, File repository, Transport transport) throws IOException {
+        return ezlib.download(COORDINATE, repository.toURI().toString(), UrlFormat.DEFAULT, null, transport);
+    }
+
+    @Test
+    public void testUnreachable() throws IOException {
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        final Ezlib ezlib = new Ezlib(Files.createTempDirectory("ezlib-test").toFile());
+        final File file = write(ezlib.getFolder(), PATH, "local");
+
+        // Existing files are used while the checksum cannot be requested
+        final AtomicInteger count = new AtomicInteger();
+        final Transport unreachable = counting(count, (method, url, headers) -> {
+            throw new IOException("Connection refused");
+        });
+        assertEquals(file, download(ezlib, repository, unreachable));
+        assertEquals("local", read(file));
+        assertEquals(1, count.get());
+
+        // The file is not trusted, so it's verified again
+        assertEquals(file, download(ezlib, repository, unreachable));
+        assertEquals(2, count.get());
+        ezlib.saveChecksums();
+        assertFalse(new File(ezlib.getCacheFolder(), "checksums.properties").exists());
+    }
+
+    @Test
+    public void testMissingChecksum() throws IOException {
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        write(repository, PATH, "remote");
+        final Ezlib ezlib = new Ezlib(Files.createTempDirectory("ezlib-test").toFile());
+        final File file = write(ezlib.getFolder(), PATH, "local");
+
+        // The repository doesn't provide checksums, so the file is trusted
+        final AtomicInteger count = new AtomicInteger();
+        final Transport transport = counting(count, new UrlTransport(1000, 1000));
+        assertEquals(file, download(ezlib, repository, transport));
+        assertEquals("local", read(file));
+        assertEquals(2, count.get());
+
+        assertEquals(file, download(ezlib, repository, transport));
+        assertEquals(2, count.get());
+        ezlib.saveChecksums();
+        assertTrue(new File(ezlib.getCacheFolder(), "checksums.properties").exists());
+    }
+
+    @Test
+    public void testMismatch() throws IOException, NoSuchAlgorithmException {
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        write(repository, PATH, "remote");
+        write(repository, PATH + ".sha1", sha1("remote") + "  lib-1.0.jar");
+        final Ezlib ezlib = new Ezlib(Files.createTempDirectory("ezlib-test").toFile());
+        final File file = write(ezlib.getFolder(), PATH, "local");
+
+        // The file is downloaded again when the checksum doesn't match
+        final Transport transport = new UrlTransport(1000, 1000);
+        assertEquals(file, download(ezlib, repository, transport));
+        assertEquals("remote", read(file));
+        assertEquals(sha1("remote"), ezlib.checksum(file));
+
+        // A different file from repository is not accepted
+        write(repository, PATH, "changed");
+        assertTrue(file.delete());
+        assertThrows(IOException.class, () -> download(ezlib, repository, transport));
+        assertFalse(file.exists());
+    }
+}
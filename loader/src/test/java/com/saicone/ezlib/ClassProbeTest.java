@@ -0,0 +1,65 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.ClassProbe;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassProbeTest {
+
+    private static final String PREFIX = ClassProbeTest.class.getName() + "$";
+
+    private static boolean resourceInitialized;
+    private static boolean loadInitialized;
+    private static boolean initializeInitialized;
+
+    public static class Resource {
+        static {
+            resourceInitialized = true;
+        }
+    }
+
+    public static class Load {
+        static {
+            loadInitialized = true;
+        }
+    }
+
+    public static class Initialize {
+        static {
+            initializeInitialized = true;
+        }
+    }
+
+    @Test
+    public void testProbes() {
+        final EzlibLoader loader = new EzlibLoader(false);
+        assertEquals(ClassProbe.RESOURCE, loader.getClassProbe());
+
+        // The class file is found without loading the class
+        assertTrue(loader.test(PREFIX + "Resource", false));
+        assertFalse(loader.test("com.example.Missing", false));
+        assertTrue(loader.test("!com.example.Missing", false));
+        assertFalse(resourceInitialized);
+
+        // The class is loaded without initialization
+        loader.classProbe(ClassProbe.LOAD);
+        assertTrue(loader.test(PREFIX + "Load", false));
+        assertFalse(loader.test("com.example.Missing", false));
+        assertFalse(loadInitialized);
+
+        loader.classProbe(ClassProbe.INITIALIZE);
+        assertTrue(loader.test(PREFIX + "Initialize", false));
+        assertFalse(loader.test("com.example.Missing", false));
+        assertTrue(initializeInitialized);
+
+        assertTrue(loader.test(Arrays.asList(ClassProbeTest.class.getName(), "!com.example.Missing"), false));
+        assertFalse(loader.test(Arrays.asList(ClassProbeTest.class.getName(), "com.example.Missing"), false));
+
+        // Null probe use the default one
+        loader.classProbe(null);
+        assertEquals(ClassProbe.RESOURCE, loader.getClassProbe());
+    }
+}
@@ -77,4 +77,47 @@ public class ConditionTest {
         assertEquals(Boolean.FALSE, loader.eval("number >= 5"));
         assertEquals(Boolean.FALSE, loader.eval("number > 5"));
     }
+
+    @Test
+    public void testExpressions() {
+        final EzlibLoader loader = new EzlibLoader(false);
+        loader.condition("isPresent", Condition.valueOf(true));
+        loader.condition("isNotPresent", Condition.valueOf(false));
+        loader.condition("text", STRING_CONDITION);
+        loader.condition("number", INTEGER_CONDITION);
+
+        assertEquals(Boolean.TRUE, loader.eval("isPresent && !isNotPresent"));
+        assertEquals(Boolean.FALSE, loader.eval("isPresent && isNotPresent"));
+        assertEquals(Boolean.TRUE, loader.eval("isNotPresent || number < 5"));
+        assertEquals(Boolean.FALSE, loader.eval("isNotPresent || number > 5"));
+        assertEquals(Boolean.TRUE, loader.eval("text = value1 && (number >= 15 || isNotPresent)"));
+        assertEquals(Boolean.FALSE, loader.eval("!(text = value1 && number == 10)"));
+        assertEquals(Boolean.TRUE, loader.eval("number != 20"));
+        assertEquals(Boolean.FALSE, loader.eval("text != value2"));
+
+        // Unknown conditions are ignored only when the result depends on them
+        assertNull(loader.eval("isPresent && unknown"));
+        assertEquals(Boolean.FALSE, loader.eval("isNotPresent && unknown"));
+        assertEquals(Boolean.TRUE, loader.eval("unknown || isPresent"));
+
+        assertNull(loader.eval("(isPresent"));
+        assertNull(loader.eval("isPresent &&"));
+    }
+
+    @Test
+    public void testConstantConditions() {
+        final int[] calls = {0};
+        final EzlibLoader loader = new EzlibLoader(false);
+        loader.condition("constant", Condition.valueOfInteger(() -> ++calls[0] > 0 ? 8 : 0).constant(true));
+        loader.condition("variable", Condition.valueOfInteger(() -> ++calls[0] > 0 ? 8 : 0));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Boolean.TRUE, loader.eval("constant >= 8"));
+        }
+        assertEquals(1, calls[0]);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Boolean.TRUE, loader.eval("variable >= 8"));
+        }
+        assertEquals(6, calls[0]);
+    }
 }
@@ -0,0 +1,68 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.Ezlib.Coordinate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoordinateTest {
+
+    @Test
+    public void testCoordinate() {
+        final Coordinate coordinate = Coordinate.of("com.example:lib:1.0");
+        assertEquals("com.example", coordinate.getGroup());
+        assertEquals("lib", coordinate.getArtifact());
+        assertEquals("1.0", coordinate.getVersion());
+        assertEquals("1.0", coordinate.getFileVersion());
+        assertEquals("com.example:lib", coordinate.getId());
+        assertNull(coordinate.getClassifier());
+        assertFalse(coordinate.isVersionPath());
+        assertFalse(coordinate.hasFileVersion());
+        assertSame(coordinate, Coordinate.of("com.example:lib:1.0"));
+
+        // Trailing empty parts are ignored
+        assertEquals("1.0", Coordinate.of("com.example:lib:1.0:").getFileVersion());
+        assertNull(Coordinate.of("com.example:lib:1.0::").getClassifier());
+
+        assertThrows(IllegalArgumentException.class, () -> Coordinate.of("com.example:lib"));
+        assertThrows(IllegalArgumentException.class, () -> Coordinate.of("com.example:lib:"));
+        assertThrows(IllegalArgumentException.class, () -> Coordinate.of("com.example"));
+    }
+
+    @Test
+    public void testClassifier() {
+        final Coordinate coordinate = Coordinate.of("com.example:lib:1.0:natives:linux");
+        assertEquals("1.0", coordinate.getVersion());
+        assertEquals("1.0-natives-linux", coordinate.getFileVersion());
+        assertEquals("natives-linux", coordinate.getClassifier());
+
+        final Coordinate other = coordinate.withVersion("2.0");
+        assertEquals("com.example:lib:2.0:natives:linux", other.getPath());
+        assertEquals("2.0-natives-linux", other.getFileVersion());
+    }
+
+    @Test
+    public void testFileVersion() {
+        final Coordinate coordinate = Coordinate.of("com.example:lib:1.0-SNAPSHOT@1.0-20240101.000000-3");
+        assertEquals("1.0-SNAPSHOT", coordinate.getVersion());
+        assertEquals("1.0-20240101.000000-3", coordinate.getFileVersion());
+        assertTrue(coordinate.hasFileVersion());
+        assertFalse(coordinate.isVersionPath());
+
+        final Coordinate classified = Coordinate.of("com.example:lib:1.0-SNAPSHOT@1.0-20240101.000000-3:linux");
+        assertEquals("1.0-20240101.000000-3-linux", classified.getFileVersion());
+        assertEquals("linux", classified.getClassifier());
+    }
+
+    @Test
+    public void testVersionPath() {
+        final Coordinate coordinate = Coordinate.of("com.example:lib:@release");
+        assertTrue(coordinate.isVersionPath());
+        assertFalse(coordinate.hasFileVersion());
+        assertEquals("@release", coordinate.getVersion());
+
+        final Coordinate resolved = coordinate.withVersion("2.0");
+        assertFalse(resolved.isVersionPath());
+        assertEquals("com.example:lib:2.0", resolved.getPath());
+    }
+}
@@ -0,0 +1,114 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.Dependency;
+import com.saicone.ezlib.EzlibLoader.DependencyGraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DescriptorTest {
+
+    private static final String RELOCATED = "{package}.libs.other";
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object object) {
+        return (T) object;
+    }
+
+    private static Reader resource(String name) {
+        return new InputStreamReader(DescriptorTest.class.getResourceAsStream("/" + name), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCompactRecords() throws IOException {
+        final Map<String, Object> map;
+        try (Reader reader = resource("dependencies.ezlib")) {
+            map = EzlibLoader.Descriptor.read(reader);
+        }
+
+        final List<Map<String, Object>> repositories = cast(map.get("repositories"));
+        assertEquals(1, repositories.size());
+        assertEquals("http://repo.example.com/maven/", repositories.get(0).get("url"));
+        assertEquals(true, repositories.get(0).get("allowInsecureProtocol"));
+
+        assertEquals(Collections.singletonMap("com.example", "{package}.libs.example"), map.get("relocations"));
+
+        final List<Map<String, Object>> dependencies = cast(map.get("dependencies"));
+        assertEquals(2, dependencies.size());
+        final Map<String, Object> first = dependencies.get(0);
+        final Map<String, Object> repository = cast(first.get("repository"));
+        assertEquals("http://repo.example.com/maven/", repository.get("url"));
+        assertEquals(true, repository.get("allowInsecureProtocol"));
+        assertEquals(Arrays.asList("compile", "runtime"), first.get("scopes"));
+        assertEquals(Collections.singletonMap("com.other", RELOCATED), first.get("relocate"));
+
+        final Map<String, Object> second = dependencies.get(1);
+        assertEquals(false, second.get("transitive"));
+        assertEquals(Arrays.asList("os\tlinux", "java < 99"), second.get("condition"));
+        assertEquals(new Dependency().path("com.example:a:1.0").relocate("com.other", RELOCATED), Dependency.valueOf(first));
+    }
+
+    @Test
+    public void testCompactGraph() throws IOException {
+        final Map<String, Object> map;
+        try (Reader reader = resource("dependencies.ezlib")) {
+            map = EzlibLoader.Descriptor.read(reader);
+        }
+        final DependencyGraph graph = DependencyGraph.valueOf(cast(map.get("graph")));
+        assertEquals(Collections.singletonMap("com.example", "{package}.libs.example"), graph.getRelocations());
+        assertEquals(Collections.singletonList("com.example:c:2.0 -> 1.0"), graph.getOverrides());
+        assertEquals(3, graph.getNodes().size());
+
+        final DependencyGraph.Node node = graph.getNode("com.example:a:1.0");
+        assertNotNull(node);
+        assertEquals("http://repo.example.com/maven/", node.getRepository());
+        assertEquals("com/example/a/1.0/a-1.0.jar", node.getFile());
+        assertEquals(Collections.singletonMap("com.other", RELOCATED), node.getRelocate());
+        assertEquals(Arrays.asList("com.example:b:1.0", "com.example:c:1.0"), node.getDependencies());
+        assertEquals("b72fa66d87617efb6466dd244f699f0c9873761b", node.getSha1());
+        assertEquals(455L, node.getSize());
+    }
+
+    @Test
+    public void testCompactEscapes() throws IOException {
+        final String text = "# comment\n"
+                + "dependency\tpath=com.example:a:1.0\tcondition=a\\\\b\\tc\toptional\n"
+                + "unknown\tkey=value\n";
+        final Map<String, Object> map = EzlibLoader.Descriptor.read(new StringReader(text));
+        final List<Map<String, Object>> dependencies = cast(map.get("dependencies"));
+        assertEquals(1, dependencies.size());
+        assertEquals(Collections.singletonList("a\\b\tc"), dependencies.get(0).get("condition"));
+        assertEquals(true, dependencies.get(0).get("optional"));
+        assertEquals(Collections.singleton("dependencies"), map.keySet());
+
+        assertThrows(IOException.class, () -> EzlibLoader.Descriptor.read(new StringReader("relocation\tcom.example\n")));
+    }
+
+    @Test
+    public void testJsonRelocations() throws IOException {
+        final Map<String, Object> map;
+        try (Reader reader = resource("dependencies.json")) {
+            map = cast(EzlibLoader.Json.read(reader));
+        }
+        assertEquals(Collections.singletonMap("com.example", "{package}.libs.example"), map.get("relocations"));
+
+        final List<Map<String, Object>> dependencies = cast(map.get("dependencies"));
+        // Relocations can be written as object or flat list
+        assertEquals(new Dependency().path("com.example:a:1.0").relocate("com.other", RELOCATED), Dependency.valueOf(dependencies.get(0)));
+        assertEquals(new Dependency().path("com.example:d:1.0").relocate("com.other", RELOCATED), Dependency.valueOf(dependencies.get(1)));
+        assertEquals(false, dependencies.get(1).get("transitive"));
+
+        map.put("relocations", Arrays.asList("com.example", "{package}.libs.example"));
+        assertTrue(EzlibLoader.Dependencies.valueOf(map).load(new EzlibLoader(false)));
+    }
+}
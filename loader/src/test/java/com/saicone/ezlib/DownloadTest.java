@@ -0,0 +1,143 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.Ezlib.Coordinate;
+import com.saicone.ezlib.Ezlib.Transport;
+import com.saicone.ezlib.Ezlib.UrlFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DownloadTest {
+
+    private static final String REPOSITORY = "http://repo.example.com/maven/";
+    private static final String PATH = "com/example/lib/1.0/lib-1.0.jar";
+    private static final String CONTENT = "0123456789";
+
+    // Repository that answers range requests with the provided status code and content range
+    private static final class RangeTransport implements Transport {
+
+        private final int rangeCode;
+        private final String contentRange;
+        private final List<String> ranges = new ArrayList<>();
+
+        RangeTransport(int rangeCode, String contentRange) {
+            this.rangeCode = rangeCode;
+            this.contentRange = contentRange;
+        }
+
+        @Override
+        public Response request(String method, URL url, Map<String, String> headers) throws IOException {
+            final String path = url.toString().substring(REPOSITORY.length());
+            if (path.equals(PATH + ".sha1")) {
+                return response(200, Collections.emptyMap(), sha1(CONTENT));
+            } else if (!path.equals(PATH)) {
+                return response(404, Collections.emptyMap(), "");
+            }
+            final String range = headers.get("Range");
+            ranges.add(range);
+            if (range == null) {
+                return response(200, Collections.emptyMap(), CONTENT);
+            }
+            final int offset = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            if (rangeCode == 206) {
+                final Map<String, String> responseHeaders = new HashMap<>();
+                responseHeaders.put("Content-Range", contentRange != null ? contentRange : "bytes " + offset + "-" + (CONTENT.length() - 1) + "/" + CONTENT.length());
+                return response(206, responseHeaders, CONTENT.substring(offset));
+            }
+            return response(rangeCode, Collections.emptyMap(), rangeCode == 200 ? CONTENT : "");
+        }
+    }
+
+    private static Transport.Response response(int code, Map<String, String> headers, String body) {
+        return new Transport.Response() {
+            @Override
+            public int getCode() {
+                return code;
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return headers.get(name);
+            }
+
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static String sha1(String content) {
+        try {
+            return Ezlib.toHex(MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String download(RangeTransport transport, String part) throws IOException {
+        final Ezlib ezlib = new Ezlib(Files.createTempDirectory("ezlib-test").toFile());
+        final File file = new File(ezlib.getFolder(), PATH);
+        final File partFile = new File(file.getPath() + ".part");
+        if (part != null) {
+            partFile.getParentFile().mkdirs();
+            Files.write(partFile.toPath(), part.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(file, ezlib.download(Coordinate.of("com.example:lib:1.0"), REPOSITORY, UrlFormat.DEFAULT, null, transport));
+        assertFalse(partFile.exists());
+        // The checksum includes the bytes from partial file
+        assertEquals(sha1(CONTENT), ezlib.checksum(file));
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        final RangeTransport transport = new RangeTransport(206, null);
+        assertEquals(CONTENT, download(transport, "01234"));
+        assertEquals(Collections.singletonList("bytes=5-"), transport.ranges);
+
+        // Files without partial download are requested from start
+        final RangeTransport full = new RangeTransport(206, null);
+        assertEquals(CONTENT, download(full, null));
+        assertEquals(Collections.singletonList(null), full.ranges);
+    }
+
+    @Test
+    public void testResumeFallback() throws IOException {
+        // The partial file is bigger than repository file
+        final RangeTransport unsatisfiable = new RangeTransport(416, null);
+        assertEquals(CONTENT, download(unsatisfiable, "0123456789AB"));
+        assertEquals(2, unsatisfiable.ranges.size());
+        assertNull(unsatisfiable.ranges.get(1));
+
+        // The repository returns a different range
+        final RangeTransport mismatch = new RangeTransport(206, "bytes 0-9/10");
+        assertEquals(CONTENT, download(mismatch, "01234"));
+        assertEquals(2, mismatch.ranges.size());
+        assertNull(mismatch.ranges.get(1));
+
+        // The repository doesn't support range requests and send the full file
+        final RangeTransport ignored = new RangeTransport(200, null);
+        assertEquals(CONTENT, download(ignored, "01234"));
+        assertEquals(Collections.singletonList("bytes=5-"), ignored.ranges);
+    }
+}
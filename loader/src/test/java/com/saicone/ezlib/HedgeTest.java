@@ -0,0 +1,96 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.Dependency;
+import com.saicone.ezlib.EzlibLoader.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgeTest {
+
+    private static final String PATH = "com/example/lib/1.0/lib-1.0.jar";
+
+    public static final class Recorder {
+        private final List<URL> urls = new ArrayList<>();
+
+        public void append(URL url, ClassLoader loader) {
+            urls.add(url);
+        }
+
+        public void relocate(File input, File output, Map<String, String> relocations) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static File write(File folder, String path, String content) throws IOException {
+        final File file = new File(folder, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String sha1(String content) throws NoSuchAlgorithmException {
+        return Ezlib.toHex(MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testHedge() throws IOException, ReflectiveOperationException, NoSuchAlgorithmException {
+        // The first repository doesn't have the dependency
+        final File empty = Files.createTempDirectory("ezlib-repo").toFile();
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        write(repository, PATH, "remote");
+        write(repository, PATH + ".sha1", sha1("remote"));
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+
+        final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        final Ezlib.Transport http = new Ezlib.UrlTransport(1000, 1000);
+        final Recorder recorder = new Recorder();
+        final Ezlib ezlib = new Ezlib(folder).setTransport((method, url, headers) -> {
+            requests.add(Thread.currentThread().getName() + ' ' + url);
+            return http.request(method, url, headers);
+        });
+        ezlib.init(new Ezlib.PublicClassLoader(new URL[0], HedgeTest.class.getClassLoader()), ezlib.new Loader(
+                recorder,
+                recorder,
+                Recorder.class.getMethod("append", URL.class, ClassLoader.class),
+                Recorder.class.getMethod("relocate", File.class, File.class, Map.class)
+        ));
+        final EzlibLoader loader = new EzlibLoader(HedgeTest.class.getClassLoader(), folder, ezlib, false, (String[]) null)
+                .logger((level, msg) -> {})
+                .lockFile(null)
+                .hedge(2, 0);
+        loader.loadRepository(new Repository().url(empty.toURI().toString()));
+        loader.loadRepository(new Repository().url(repository.toURI().toString()));
+        loader.loadDependency(new Dependency().path("com.example:lib:1.0").transitive(false));
+        loader.load();
+
+        assertEquals(1, recorder.urls.size());
+        assertEquals("remote", new String(Files.readAllBytes(new File(folder, PATH).toPath()), StandardCharsets.UTF_8));
+        // The downloaded file is verified once by the hedged request with the checksum of the repository that provides it
+        final List<String> checksums = requests.stream().filter(s -> !s.endsWith(".jar")).collect(Collectors.toList());
+        assertEquals(1, checksums.size());
+        assertTrue(checksums.get(0).startsWith("ezlib-hedge-"));
+        assertTrue(checksums.get(0).endsWith(" " + repository.toURI() + PATH + ".sha1"));
+        assertEquals(2, requests.stream().filter(s -> s.endsWith(".jar")).count());
+        assertEquals(sha1("remote"), ezlib.checksum(new File(folder, PATH)));
+
+        // Temporary files are removed
+        final String[] names = new File(folder, PATH).getParentFile().list();
+        assertNotNull(names);
+        assertEquals(Collections.singletonList("lib-1.0.jar"), Arrays.asList(names));
+    }
+}
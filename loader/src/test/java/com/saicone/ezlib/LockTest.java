@@ -0,0 +1,136 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.Dependency;
+import com.saicone.ezlib.EzlibLoader.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LockTest {
+
+    private static final String PATH = "com/example/lib/1.0/lib-1.0.jar";
+    private static final String LOCKED = "Applying 1 locked dependency...";
+
+    public static final class Recorder {
+        private final List<URL> urls = new ArrayList<>();
+
+        public void append(URL url, ClassLoader loader) {
+            urls.add(url);
+        }
+
+        public void relocate(File input, File output, Map<String, String> relocations) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static File write(File folder, String path, String content) throws IOException {
+        final File file = new File(folder, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static EzlibLoader loader(File folder, File repository, Recorder recorder, List<String> logs, String... dependencies) throws ReflectiveOperationException {
+        final Method append = Recorder.class.getMethod("append", URL.class, ClassLoader.class);
+        final Method relocate = Recorder.class.getMethod("relocate", File.class, File.class, Map.class);
+        final Ezlib ezlib = new Ezlib(folder);
+        ezlib.init(new Ezlib.PublicClassLoader(new URL[0], LockTest.class.getClassLoader()), ezlib.new Loader(recorder, recorder, append, relocate));
+
+        final EzlibLoader loader = new EzlibLoader(LockTest.class.getClassLoader(), folder, ezlib, false, (String[]) null)
+                .logger((level, msg) -> logs.add(msg));
+        loader.loadRepository(new Repository().url(repository.toURI().toString()));
+        for (String dependency : dependencies) {
+            loader.loadDependency(new Dependency().path(dependency).transitive(false));
+        }
+        return loader;
+    }
+
+    private static String lock(File folder) throws IOException {
+        return new String(Files.readAllBytes(new File(folder, "ezlib-lock.json").toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReuse() throws IOException, ReflectiveOperationException {
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        write(repository, PATH, "first");
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+
+        final List<String> logs = new ArrayList<>();
+        final Recorder recorder = new Recorder();
+        loader(folder, repository, recorder, logs, "com.example:lib:1.0").load();
+        assertEquals(1, recorder.urls.size());
+        assertFalse(logs.contains(LOCKED));
+        assertTrue(new File(folder, "ezlib-lock.json").exists());
+
+        // Next load with the same information append the locked files
+        logs.clear();
+        final Recorder warm = new Recorder();
+        loader(folder, repository, warm, logs, "com.example:lib:1.0").load();
+        assertEquals(recorder.urls, warm.urls);
+        assertTrue(logs.contains(LOCKED));
+    }
+
+    @Test
+    public void testKey() throws IOException, ReflectiveOperationException {
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        write(repository, PATH, "first");
+        write(repository, "com/example/other/1.0/other-1.0.jar", "other");
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+
+        final List<String> logs = new ArrayList<>();
+        loader(folder, repository, new Recorder(), logs, "com.example:lib:1.0").load();
+        final String first = lock(folder);
+
+        // Any change on loaded information resolve the dependencies again
+        logs.clear();
+        final Recorder recorder = new Recorder();
+        loader(folder, repository, recorder, logs, "com.example:lib:1.0", "com.example:other:1.0").load();
+        assertEquals(2, recorder.urls.size());
+        assertFalse(logs.contains(LOCKED));
+        assertNotEquals(first, lock(folder));
+
+        logs.clear();
+        loader(folder, repository, new Recorder(), logs, "com.example:lib:1.0", "com.example:other:1.0").load();
+        assertTrue(logs.contains("Applying 2 locked dependencies..."));
+    }
+
+    @Test
+    public void testMismatch() throws IOException, ReflectiveOperationException {
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        write(repository, PATH, "first");
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+
+        final List<String> logs = new ArrayList<>();
+        loader(folder, repository, new Recorder(), logs, "com.example:lib:1.0").load();
+        final String first = lock(folder);
+
+        // The repository file is replaced with a different build and the saved file is gone
+        write(repository, PATH, "second");
+        assertTrue(new File(folder, PATH).delete());
+
+        // The locked checksum doesn't match, so the dependencies are resolved again and locked with new checksum
+        logs.clear();
+        final Recorder recorder = new Recorder();
+        loader(folder, repository, recorder, logs, "com.example:lib:1.0").load();
+        assertTrue(logs.contains(LOCKED));
+        assertEquals(1, recorder.urls.size());
+        assertEquals("second", new String(Files.readAllBytes(new File(folder, PATH).toPath()), StandardCharsets.UTF_8));
+        assertNotEquals(first, lock(folder));
+
+        logs.clear();
+        final Recorder warm = new Recorder();
+        loader(folder, repository, warm, logs, "com.example:lib:1.0").load();
+        assertTrue(logs.contains(LOCKED));
+        assertEquals(1, warm.urls.size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.Dependency;
+import com.saicone.ezlib.EzlibLoader.DependencyGraph;
+import com.saicone.ezlib.EzlibLoader.Mediation;
+import com.saicone.ezlib.EzlibLoader.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MediationTest {
+
+    private static List<String> plan(File folder, Mediation mediation) throws URISyntaxException {
+        final EzlibLoader loader = new EzlibLoader(MediationTest.class.getClassLoader(), folder, false, (String[]) null)
+                .logger((level, msg) -> {})
+                .lockFile(null);
+        if (mediation != null) {
+            loader.mediation(mediation);
+        }
+        loader.loadRepository(new Repository().url(MediationTest.class.getResource("/repository/").toURI().toString()));
+        loader.loadDependency(Dependency.valueOf("com.example:a:1.0"));
+        return loader.plan().getNodes().stream().map(DependencyGraph.Node::getPath).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCompareVersions() {
+        assertEquals(0, EzlibLoader.compareVersions("1.0", "1.0.0"));
+        assertEquals(0, EzlibLoader.compareVersions("1.0", "1.0-final"));
+        assertTrue(EzlibLoader.compareVersions("1.10", "1.9") > 0);
+        assertTrue(EzlibLoader.compareVersions("2.0", "10.0") < 0);
+        assertTrue(EzlibLoader.compareVersions("1.0.1", "1.0") > 0);
+        assertTrue(EzlibLoader.compareVersions("1.0-alpha", "1.0-beta") < 0);
+        assertTrue(EzlibLoader.compareVersions("1.0-rc1", "1.0") < 0);
+        assertTrue(EzlibLoader.compareVersions("1.0-SNAPSHOT", "1.0") < 0);
+        assertTrue(EzlibLoader.compareVersions("1.0-SNAPSHOT", "1.0-rc1") > 0);
+        assertTrue(EzlibLoader.compareVersions("1.0.1", "1.0-SNAPSHOT") > 0);
+    }
+
+    @Test
+    public void testMediation() throws IOException, URISyntaxException {
+        // com.example:a:1.0 requires b:1.0 and c:1.0, then b:1.0 requires c:2.0
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+        assertEquals(Arrays.asList("com.example:a:1.0", "com.example:b:1.0", "com.example:c:2.0", "com.example:c:1.0"), plan(folder, null));
+        assertEquals(Arrays.asList("com.example:a:1.0", "com.example:b:1.0", "com.example:c:2.0", "com.example:c:1.0"), plan(folder, Mediation.NONE));
+        assertEquals(Arrays.asList("com.example:a:1.0", "com.example:b:1.0", "com.example:c:2.0"), plan(folder, Mediation.HIGHEST));
+
+        // The nearest version wins and the pom from farthest version is not downloaded
+        final File nearest = Files.createTempDirectory("ezlib-test").toFile();
+        assertEquals(Arrays.asList("com.example:a:1.0", "com.example:b:1.0", "com.example:c:1.0"), plan(nearest, Mediation.NEAREST));
+        assertTrue(new File(nearest, "com/example/c/1.0/c-1.0.pom").exists());
+        assertFalse(new File(nearest, "com/example/c/2.0/c-2.0.pom").exists());
+    }
+}
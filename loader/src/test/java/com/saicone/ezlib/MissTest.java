@@ -0,0 +1,113 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.Dependency;
+import com.saicone.ezlib.EzlibLoader.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MissTest {
+
+    private static final String PATH = "com/example/lib/1.0/lib-1.0.jar";
+
+    public static final class Recorder {
+        private final List<URL> urls = new ArrayList<>();
+
+        public void append(URL url, ClassLoader loader) {
+            urls.add(url);
+        }
+
+        public void relocate(File input, File output, Map<String, String> relocations) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static File write(File folder, String path, String content) throws IOException {
+        final File file = new File(folder, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static EzlibLoader loader(File folder, Recorder recorder, List<String> requests, File... repositories) throws ReflectiveOperationException {
+        final Ezlib.Transport transport = new Ezlib.UrlTransport(1000, 1000);
+        final Ezlib ezlib = new Ezlib(folder).setTransport((method, url, headers) -> {
+            requests.add(url.toString());
+            return transport.request(method, url, headers);
+        });
+        ezlib.init(new Ezlib.PublicClassLoader(new URL[0], MissTest.class.getClassLoader()), ezlib.new Loader(
+                recorder,
+                recorder,
+                Recorder.class.getMethod("append", URL.class, ClassLoader.class),
+                Recorder.class.getMethod("relocate", File.class, File.class, Map.class)
+        ));
+        final EzlibLoader loader = new EzlibLoader(MissTest.class.getClassLoader(), folder, ezlib, false, (String[]) null)
+                .logger((level, msg) -> {})
+                .lockFile(null)
+                .rankRepositories(false);
+        for (File repository : repositories) {
+            loader.loadRepository(new Repository().url(repository.toURI().toString()));
+        }
+        loader.loadDependency(new Dependency().path("com.example:lib:1.0").transitive(false));
+        return loader;
+    }
+
+    @Test
+    public void testMisses() throws IOException, ReflectiveOperationException {
+        final File empty = Files.createTempDirectory("ezlib-repo").toFile();
+        final File repository = Files.createTempDirectory("ezlib-repo").toFile();
+        write(repository, PATH, "remote");
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+        final String missing = empty.toURI() + PATH;
+
+        final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        loader(folder, new Recorder(), requests, empty, repository).load();
+        assertTrue(requests.contains(missing));
+        assertTrue(new File(new Ezlib(folder).getCacheFolder(), "misses.properties").exists());
+
+        // The known miss is skipped on next loads
+        assertTrue(new File(folder, PATH).delete());
+        requests.clear();
+        final Recorder recorder = new Recorder();
+        loader(folder, recorder, requests, empty, repository).load();
+        assertEquals(1, recorder.urls.size());
+        assertFalse(requests.contains(missing));
+        assertTrue(requests.contains(repository.toURI() + PATH));
+
+        // Misses are not used when expiration is disabled
+        assertTrue(new File(folder, PATH).delete());
+        requests.clear();
+        loader(folder, new Recorder(), requests, empty, repository).missExpiration(0).load();
+        assertTrue(requests.contains(missing));
+    }
+
+    @Test
+    public void testIgnoredOnce() throws IOException, ReflectiveOperationException {
+        final File first = Files.createTempDirectory("ezlib-repo").toFile();
+        final File second = Files.createTempDirectory("ezlib-repo").toFile();
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+
+        final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        assertThrows(RuntimeException.class, () -> loader(folder, new Recorder(), requests, first, second).load());
+        assertTrue(requests.contains(first.toURI() + PATH));
+        assertTrue(requests.contains(second.toURI() + PATH));
+
+        // The dependency is uploaded after the misses were saved, so every repository is requested again
+        write(first, PATH, "remote");
+        requests.clear();
+        final Recorder recorder = new Recorder();
+        loader(folder, recorder, requests, first, second).load();
+        assertEquals(1, recorder.urls.size());
+        assertTrue(requests.contains(first.toURI() + PATH));
+    }
+}
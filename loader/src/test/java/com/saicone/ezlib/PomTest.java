@@ -0,0 +1,129 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.Dependency;
+import com.saicone.ezlib.EzlibLoader.DependencyGraph;
+import com.saicone.ezlib.EzlibLoader.Metadata;
+import com.saicone.ezlib.EzlibLoader.Pom;
+import com.saicone.ezlib.EzlibLoader.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PomTest {
+
+    private static Pom pom(String path) throws IOException {
+        try (InputStream in = PomTest.class.getResourceAsStream("/repository/com/example/" + path)) {
+            return Pom.read(in);
+        }
+    }
+
+    private static List<String> plan(String dependency) throws IOException, URISyntaxException {
+        return plan(Files.createTempDirectory("ezlib-test").toFile(), Dependency.valueOf(dependency));
+    }
+
+    private static List<String> plan(File folder, Dependency dependency) throws URISyntaxException {
+        final EzlibLoader loader = new EzlibLoader(PomTest.class.getClassLoader(), folder, false, (String[]) null)
+                .logger((level, msg) -> {})
+                .lockFile(null);
+        loader.loadRepository(new Repository().url(PomTest.class.getResource("/repository/").toURI().toString()));
+        loader.loadDependency(dependency);
+        return loader.plan().getNodes().stream().map(DependencyGraph.Node::getPath).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testModel() throws IOException {
+        final Pom pom = pom("d/1.0/d-1.0.pom");
+        assertEquals("com.example", pom.getGroupId());
+        assertEquals("d", pom.getArtifactId());
+        assertEquals("1.0", pom.getVersion());
+        assertEquals("jar", pom.getPackaging());
+        assertEquals("parent", pom.getParent().getArtifactId());
+        assertEquals("1", pom.getParent().getVersion());
+        assertNull(pom.getParentPom());
+
+        final List<Pom.Artifact> dependencies = pom.getDependencies();
+        assertEquals(3, dependencies.size());
+        assertEquals("a", dependencies.get(0).getArtifactId());
+        assertNull(dependencies.get(0).getVersion());
+        assertEquals(1, dependencies.get(0).getExclusions().size());
+        assertEquals("c", dependencies.get(0).getExclusions().get(0).getArtifactId());
+        assertEquals("test", dependencies.get(2).getScope());
+
+        assertEquals("com.example:d:1.0", pom.interpolate("${project.groupId}:${project.artifactId}:${project.version}"));
+        assertEquals("parent-1", pom.interpolate("${parent.artifactId}-${project.parent.version}"));
+        assertEquals("${c.version}", pom.interpolate("${c.version}"));
+    }
+
+    @Test
+    public void testManagement() throws IOException {
+        final Pom pom = pom("parent/1/parent-1.pom");
+        assertEquals("pom", pom.getPackaging());
+        assertEquals(Collections.singletonMap("c.version", "2.0"), pom.getProperties());
+        assertEquals("2.0", pom.interpolate("${c.version}"));
+
+        final List<Pom.Artifact> managed = pom.getDependencyManagement();
+        assertEquals(2, managed.size());
+        assertEquals("pom", managed.get(1).getType());
+        assertEquals("import", managed.get(1).getScope());
+        assertEquals("1", pom.getManaged("com.example", "a").getVersion());
+        // Imported poms are resolved by the loader
+        assertNull(pom.getManaged("com.example", "e"));
+    }
+
+    @Test
+    public void testEffectivePom() throws IOException, URISyntaxException {
+        // The version of "a" is managed by parent using child version, "e" is managed by imported bom,
+        // "c" is inherited from parent and excluded from "a" sub-dependencies, test scope is ignored
+        assertEquals(Arrays.asList("com.example:d:1.0", "com.example:a:1.0", "com.example:b:1.0", "com.example:e:3.0", "com.example:c:2.0"), plan("com.example:d:1.0"));
+    }
+
+    @Test
+    public void testPlanFiles() throws IOException, URISyntaxException {
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+        assertEquals(Collections.singletonList("com.example:c:1.0"), plan(folder, new Dependency().path("com.example:c:1.0").transitive(false)));
+        // Non transitive dependencies don't need any file to be planned
+        assertFalse(new File(folder, "com").exists());
+        assertFalse(new Ezlib(folder).getFile("com.example:c:1.0", null).getParentFile().exists());
+
+        assertEquals(Arrays.asList("com.example:a:1.0", "com.example:b:1.0", "com.example:c:2.0", "com.example:c:1.0"), plan(folder, Dependency.valueOf("com.example:a:1.0")));
+        assertTrue(new File(folder, "com/example/a/1.0/a-1.0.pom").exists());
+        assertFalse(new File(folder, "com/example/a/1.0/a-1.0.jar").exists());
+    }
+
+    @Test
+    public void testMetadata() throws IOException, URISyntaxException {
+        final Metadata metadata;
+        try (InputStream in = PomTest.class.getResourceAsStream("/repository/com/example/c/maven-metadata.xml")) {
+            metadata = Metadata.read(in);
+        }
+        assertFalse(metadata.isEmpty());
+        assertEquals(Arrays.asList("1.0", "2.0"), metadata.getVersions());
+        assertEquals("2.0", metadata.get("release"));
+        assertEquals("1.0", metadata.get("versions", "version"));
+        assertEquals("2.0", metadata.get("versions", "version", "-1"));
+        assertEquals("1.0", metadata.get("version"));
+        assertNull(metadata.get("versions", "version", "2"));
+
+        final String snapshot = "<metadata><versioning><snapshot><timestamp>20240101.000000</timestamp><buildNumber>3</buildNumber></snapshot>"
+                + "<snapshotVersions><snapshotVersion><extension>jar</extension><value>1.0-20240101.000000-3</value></snapshotVersion></snapshotVersions>"
+                + "</versioning></metadata>";
+        final Metadata snapshotMetadata = Metadata.read(new ByteArrayInputStream(snapshot.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("20240101.000000", snapshotMetadata.get("snapshot", "timestamp"));
+        assertEquals("3", snapshotMetadata.get("buildNumber"));
+        assertEquals("1.0-20240101.000000-3", snapshotMetadata.get("snapshotVersions", "snapshotVersion", "value"));
+
+        assertEquals(Collections.singletonList("com.example:c:2.0"), plan("com.example:c:@release"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.EzlibLoader.Dependency;
+import com.saicone.ezlib.EzlibLoader.DependencyGraph;
+import com.saicone.ezlib.EzlibLoader.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProvidedTest {
+
+    private static String properties(String artifact, String version) {
+        return "groupId=com.example\nartifactId=" + artifact + "\nversion=" + version + "\n";
+    }
+
+    private static File jar(File folder, String name, String... artifacts) throws IOException {
+        final File file = new File(folder, name);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file.toPath()), new Manifest())) {
+            for (int i = 0; i < artifacts.length; i += 2) {
+                out.putNextEntry(new JarEntry("META-INF/maven/com.example/" + artifacts[i] + "/pom.properties"));
+                out.write(properties(artifacts[i], artifacts[i + 1]).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static ClassLoader classLoader() throws IOException {
+        final File folder = Files.createTempDirectory("ezlib-classpath").toFile();
+        final File classes = new File(folder, "classes");
+        write(new File(classes, "META-INF/MANIFEST.MF"), "Manifest-Version: 1.0\n");
+        write(new File(classes, "META-INF/maven/com.example/e/pom.properties"), properties("e", "3.1"));
+        return new URLClassLoader(new URL[] {
+                jar(folder, "b-1.5.jar", "b", "1.5").toURI().toURL(),
+                // Only the artifact that owns the shaded jar is provided
+                jar(folder, "shaded-1.0.jar", "shaded", "1.0", "c", "9.0").toURI().toURL(),
+                classes.toURI().toURL()
+        }, null);
+    }
+
+    private static EzlibLoader loader(boolean detectProvided) throws IOException, URISyntaxException {
+        final EzlibLoader loader = new EzlibLoader(classLoader(), Files.createTempDirectory("ezlib-test").toFile(), false, (String[]) null)
+                .logger((level, msg) -> {})
+                .lockFile(null)
+                .detectProvided(detectProvided);
+        loader.loadRepository(new Repository().url(ProvidedTest.class.getResource("/repository/").toURI().toString()));
+        return loader;
+    }
+
+    private static List<String> plan(EzlibLoader loader, String... dependencies) {
+        for (String dependency : dependencies) {
+            loader.loadDependency(Dependency.valueOf(dependency));
+        }
+        return loader.plan().getNodes().stream().map(DependencyGraph.Node::getPath).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testArtifacts() throws IOException, URISyntaxException {
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("com.example:b", "1.5");
+        expected.put("com.example:shaded", "1.0");
+        expected.put("com.example:e", "3.1");
+        assertEquals(expected, loader(true).getProvidedArtifacts());
+    }
+
+    @Test
+    public void testProvided() throws IOException, URISyntaxException {
+        // com.example:a:1.0 requires b:1.0 and c:1.0, then b:1.0 requires c:2.0
+        assertEquals(Arrays.asList("com.example:a:1.0", "com.example:b:1.0", "com.example:c:2.0", "com.example:c:1.0"), plan(loader(false), "com.example:a:1.0"));
+        // The provided b:1.5 satisfies b:1.0, so its sub-dependencies are not required
+        assertEquals(Arrays.asList("com.example:a:1.0", "com.example:c:1.0"), plan(loader(true), "com.example:a:1.0"));
+
+        // The provided version must be the same major and not older
+        assertEquals(Arrays.asList("com.example:e:4.0", "com.example:b:1.6"), plan(loader(true), "com.example:e:3.0", "com.example:e:4.0", "com.example:b:1.6"));
+
+        // Relocated dependencies are appended anyway
+        final EzlibLoader relocated = loader(true);
+        relocated.loadRelocations("com.example", "my.plugin.libs.example");
+        assertEquals(Arrays.asList("com.example:b:1.0", "com.example:c:2.0"), plan(relocated, "com.example:b:1.0"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.saicone.ezlib;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RelocationTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final Map<String, String> RELOCATIONS = Collections.singletonMap("com.example", "my.plugin.libs.example");
+
+    public static final class Recorder {
+        private final List<URL> urls = new ArrayList<>();
+        private int relocations;
+
+        public void append(URL url, ClassLoader loader) {
+            urls.add(url);
+        }
+
+        public void relocate(File input, File output, Map<String, String> relocations) throws IOException {
+            this.relocations++;
+            final String content = new String(Files.readAllBytes(input.toPath()), StandardCharsets.UTF_8);
+            Files.write(output.toPath(), (content + new TreeMap<>(relocations)).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static File write(File folder, String path, String content) throws IOException {
+        final File file = new File(folder, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static Ezlib ezlib(File folder, Recorder recorder) throws ReflectiveOperationException {
+        final Ezlib ezlib = new Ezlib(folder);
+        ezlib.init(new Ezlib.PublicClassLoader(new URL[0], RelocationTest.class.getClassLoader()), ezlib.new Loader(
+                recorder,
+                recorder,
+                Recorder.class.getMethod("append", URL.class, ClassLoader.class),
+                Recorder.class.getMethod("relocate", File.class, File.class, Map.class)
+        ));
+        return ezlib;
+    }
+
+    private static File appended(Recorder recorder) throws URISyntaxException {
+        return new File(recorder.urls.get(recorder.urls.size() - 1).toURI());
+    }
+
+    @Test
+    public void testCache() throws IOException, ReflectiveOperationException, URISyntaxException {
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+        final File input = write(folder, "lib-1.0.jar", "content");
+
+        final Recorder recorder = new Recorder();
+        ezlib(folder, recorder).dependency(input).relocations(RELOCATIONS).parent(true).load();
+        assertEquals(1, recorder.relocations);
+        final File relocated = appended(recorder);
+        assertEquals(new File(folder, ".cache/relocated").getAbsoluteFile(), relocated.getParentFile().getAbsoluteFile());
+        assertTrue(relocated.getName().startsWith("lib-1.0-"));
+        assertEquals("content" + RELOCATIONS, new String(Files.readAllBytes(relocated.toPath()), StandardCharsets.UTF_8));
+
+        // The relocated file is reused after restart
+        final Recorder restart = new Recorder();
+        ezlib(folder, restart).dependency(input).relocations(RELOCATIONS).parent(true).load();
+        assertEquals(0, restart.relocations);
+        assertEquals(relocated, appended(restart));
+
+        // Different relocations or input content create a new file
+        final Ezlib ezlib = ezlib(folder, restart);
+        ezlib.dependency(input).relocations(Collections.singletonMap("com.example", "other.libs.example")).parent(true).load();
+        assertEquals(1, restart.relocations);
+        assertNotEquals(relocated, appended(restart));
+        write(folder, "lib-1.0.jar", "changed");
+        ezlib.dependency(input).relocations(RELOCATIONS).parent(true).load();
+        assertEquals(2, restart.relocations);
+        assertNotEquals(relocated, appended(restart));
+
+        // Relocated files are temporary when the cache is disabled
+        final Recorder temporary = new Recorder();
+        ezlib(folder, temporary).setCacheRelocations(false).dependency(input).relocations(RELOCATIONS).parent(true).load();
+        assertEquals(1, temporary.relocations);
+        assertNotEquals(relocated.getParentFile().getAbsoluteFile(), appended(temporary).getParentFile().getAbsoluteFile());
+    }
+
+    @Test
+    public void testCleanup() throws IOException, ReflectiveOperationException, URISyntaxException {
+        final File folder = Files.createTempDirectory("ezlib-test").toFile();
+        final File input = write(folder, "lib-1.0.jar", "content");
+        final Recorder recorder = new Recorder();
+        ezlib(folder, recorder).dependency(input).relocations(RELOCATIONS).parent(true).load();
+        final File relocated = appended(recorder);
+
+        final long now = System.currentTimeMillis();
+        final File cache = relocated.getParentFile();
+        final File unused = write(cache, "unused-1.0-0000.jar", "unused");
+        final File recent = write(cache, "recent-1.0-0000.jar", "recent");
+        final File interrupted = write(cache, "lib-1.0.jar123.tmp", "interrupted");
+        final File running = write(cache, "lib-1.0.jar456.tmp", "running");
+        assertTrue(unused.setLastModified(now - 31 * DAY));
+        assertTrue(recent.setLastModified(now - DAY));
+        assertTrue(interrupted.setLastModified(now - 2 * 60 * 60 * 1000));
+        assertTrue(relocated.setLastModified(now - DAY));
+
+        // Stale files are removed on first relocation after restart, and reused files are updated
+        final Recorder restart = new Recorder();
+        ezlib(folder, restart).dependency(input).relocations(RELOCATIONS).parent(true).load();
+        assertEquals(relocated, appended(restart));
+        assertFalse(unused.exists());
+        assertFalse(interrupted.exists());
+        assertTrue(recent.exists());
+        assertTrue(running.exists());
+        assertTrue(relocated.lastModified() > now - DAY);
+    }
+}
@@ -0,0 +1,40 @@
+package com.saicone.ezlib;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplacerTest {
+
+    @Test
+    public void testLongestMatch() {
+        final EzlibLoader loader = new EzlibLoader(false)
+                .replace("{a}", "first")
+                .replace("{a}{b}", "second")
+                .replace("{b}", "third");
+
+        assertEquals("second", loader.parse("{a}{b}"));
+        assertEquals("first.third", loader.parse("{a}.{b}"));
+        assertEquals("firstsecond{c}", loader.parse("{a}{a}{b}{c}"));
+
+        final String text = "com.example.lib";
+        assertSame(text, loader.parse(text));
+        assertNull(loader.parse(null));
+    }
+
+    @Test
+    public void testValueExpansion() {
+        final EzlibLoader loader = new EzlibLoader(false)
+                .replace("{}", ".")
+                .replace("{package}", "com.example")
+                .replace("{libs}", "{package}{}libs");
+
+        // Replacement values can use other targets
+        assertEquals("com.example", loader.parse("{package}"));
+        assertEquals("com.example.libs.gson", loader.parse("{libs}{}gson"));
+
+        // Compiled replacements are updated when any replacement is changed
+        loader.replace("{package}", "my.plugin");
+        assertEquals("my.plugin.libs.gson", loader.parse("{libs}{}gson"));
+    }
+}
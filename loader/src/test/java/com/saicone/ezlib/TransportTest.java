@@ -0,0 +1,150 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.Ezlib.HttpClientTransport;
+import com.saicone.ezlib.Ezlib.Transport;
+import com.saicone.ezlib.Ezlib.UrlTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransportTest {
+
+    private static final byte[] CONTENT = new byte[300 * 1024];
+
+    static {
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) i;
+        }
+    }
+
+    // Simple HTTP/1.1 server with keep-alive connections
+    private static final class Server implements AutoCloseable {
+
+        private final ServerSocket socket = new ServerSocket(0);
+        private final AtomicInteger connections = new AtomicInteger();
+
+        Server() throws IOException {
+            final Thread thread = new Thread(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        final Socket client = socket.accept();
+                        connections.incrementAndGet();
+                        final Thread handler = new Thread(() -> handle(client));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException ignored) { }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void handle(Socket client) {
+            try (Socket s = client) {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+                final OutputStream out = s.getOutputStream();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String path = line.split(" ")[1];
+                    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                        // Skip headers
+                    }
+                    if (path.equals("/stall")) {
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + CONTENT.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(CONTENT, 0, 10);
+                        out.flush();
+                        Thread.sleep(10000);
+                        return;
+                    } else if (path.equals("/missing")) {
+                        final byte[] body = "<html>Not Found</html>".getBytes(StandardCharsets.ISO_8859_1);
+                        out.write(("HTTP/1.1 404 Not Found\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(body);
+                    } else {
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + CONTENT.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(CONTENT);
+                    }
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException ignored) { }
+        }
+
+        URL url(String path) throws IOException {
+            return new URL("http://127.0.0.1:" + socket.getLocalPort() + path);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int len;
+        while ((len = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertStall(Transport transport, URL url) throws IOException {
+        try (Transport.Response response = transport.request("GET", url, Collections.emptyMap())) {
+            assertEquals(200, response.getCode());
+            final InputStream in = response.getBody();
+            final long start = System.currentTimeMillis();
+            assertThrows(SocketTimeoutException.class, () -> read(in));
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+    }
+
+    @Test
+    public void testBody() throws IOException, ReflectiveOperationException {
+        try (Server server = new Server()) {
+            for (Transport transport : Arrays.asList(new HttpClientTransport(1000, 1000), new UrlTransport(1000, 1000))) {
+                try (Transport.Response response = transport.request("GET", server.url("/file"), Collections.emptyMap())) {
+                    assertEquals(String.valueOf(CONTENT.length), response.getHeader("Content-Length"));
+                    assertArrayEquals(CONTENT, read(response.getBody()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadTimeout() throws IOException, ReflectiveOperationException {
+        // The response body stops after some bytes
+        try (Server server = new Server()) {
+            assertStall(new HttpClientTransport(1000, 500), server.url("/stall"));
+            assertStall(new UrlTransport(1000, 500), server.url("/stall"));
+        }
+    }
+
+    @Test
+    public void testErrorReuse() throws IOException {
+        try (Server server = new Server()) {
+            final Transport transport = new UrlTransport(1000, 1000);
+            for (int i = 0; i < 3; i++) {
+                try (Transport.Response response = transport.request("GET", server.url("/missing"), Collections.emptyMap())) {
+                    assertEquals(404, response.getCode());
+                }
+            }
+            // The error responses are consumed, so the same connection is used
+            assertEquals(1, server.connections.get());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.saicone.ezlib;
+
+import com.saicone.ezlib.Ezlib.Coordinate;
+import com.saicone.ezlib.Ezlib.UrlFormat;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlFormatTest {
+
+    private static final Coordinate COORDINATE = Coordinate.of("com.example.lib:core:1.0-SNAPSHOT@1.0-20240101.000000-3:linux");
+
+    @Test
+    public void testFormat() {
+        assertEquals("com/example/lib/core/1.0/core-1.0.jar", UrlFormat.DEFAULT.format(Coordinate.of("com.example.lib:core:1.0"), null));
+        assertEquals("com/example/lib/core/1.0-SNAPSHOT/core-1.0-20240101.000000-3-linux.jar", UrlFormat.DEFAULT.format(COORDINATE, "pom"));
+
+        final UrlFormat format = UrlFormat.of("%group%/%artifact%/%version%/%artifact%-%fileVersion%.%fileType%");
+        assertSame(format, UrlFormat.of(format.getFormat()));
+        assertEquals("com/example/lib/core/1.0-SNAPSHOT/core-1.0-20240101.000000-3-linux.pom", format.format(COORDINATE, "pom"));
+        // The placeholder is kept when file type is not provided
+        assertEquals("com/example/lib/core/1.0-SNAPSHOT/core-1.0-20240101.000000-3-linux.%fileType%", format.format(COORDINATE, null));
+        assertEquals("core-linux.jar", UrlFormat.of("%artifact%-%classifier%.%extension%").format(COORDINATE, "jar"));
+    }
+
+    @Test
+    public void testLiterals() {
+        // Unknown placeholders and single percent chars are written as is
+        assertEquals("100%/core/%unknown%/1.0-SNAPSHOT%", UrlFormat.of("100%/%artifact%/%unknown%/%version%%").format(COORDINATE, null));
+        assertEquals("files/core", UrlFormat.of("files/%artifact%").format(COORDINATE, null));
+        assertEquals("%", UrlFormat.of("%").format(COORDINATE, null));
+        assertEquals("", UrlFormat.of("%classifier%").format(Coordinate.of("com.example:lib:1.0"), null));
+        assertEquals("com/example:lib", new Ezlib().parseUrl("com.example:lib:1.0", "%group%:%artifact%"));
+    }
+}
@@ -1,19 +1,51 @@
 package com.saicone.ezlib;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.StringJoiner;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.UnaryOperator;
 
 /**
@@ -25,6 +57,14 @@ import java.util.function.UnaryOperator;
 public class Ezlib {
 
     private static final String DEFAULT_FOLDER = "libs";
+    private static final String USER_AGENT = "Mozilla/5.0";
+    private static final String CACHE_FOLDER = ".cache";
+    private static final long RELOCATED_EXPIRATION = 30L * 24 * 60 * 60 * 1000;
+    private static final long TEMP_EXPIRATION = 60L * 60 * 1000;
+    private static final int TRANSFER_BUFFER_SIZE = 128 * 1024;
+    private static final ThreadLocal<ByteBuffer> TRANSFER_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE));
+
+    private static Transport DEFAULT_TRANSPORT;
 
     /**
      * Original ezlib package group that cannot be affected with relocations.
@@ -35,6 +75,23 @@ public class Ezlib {
      */
     public static String VERSION = "${version}";
 
+    /**
+     * Get the default transport that is shared between ezlib instances.<br>
+     * On Java 11 or higher a pooled HTTP/2 client is used, otherwise URL connections are used.
+     *
+     * @return a transport to request files from repositories.
+     */
+    public static synchronized Transport defaultTransport() {
+        if (DEFAULT_TRANSPORT == null) {
+            try {
+                DEFAULT_TRANSPORT = new HttpClientTransport(Transport.CONNECT_TIMEOUT, Transport.READ_TIMEOUT);
+            } catch (Throwable t) {
+                DEFAULT_TRANSPORT = new UrlTransport(Transport.CONNECT_TIMEOUT, Transport.READ_TIMEOUT);
+            }
+        }
+        return DEFAULT_TRANSPORT;
+    }
+
     /**
      * Change current ezlib version to another one, use "-SNAPSHOT" for latest commit.
      *
@@ -58,6 +115,14 @@ public class Ezlib {
     private String defaultRepository = "https://repo.maven.apache.org/maven2/";
     private boolean pathSave = true;
     private UnaryOperator<Path> pathMapper = null;
+    private Transport transport = null;
+    private boolean cacheRelocations = true;
+    private boolean verifyChecksums = true;
+
+    // Object state
+    private boolean relocatedCleaned = false;
+    private Properties checksums = null;
+    private boolean checksumsChanged = false;
 
     /**
      * Constructs an Ezlib using default libs folder at root path.
@@ -84,6 +149,15 @@ public class Ezlib {
         return folder;
     }
 
+    /**
+     * Get the folder where ezlib saves cached files, like relocated dependencies.
+     *
+     * @return a folder inside libs folder.
+     */
+    public File getCacheFolder() {
+        return new File(folder, CACHE_FOLDER);
+    }
+
     /**
      * Get current class loader.<br>
      * Take in count this value must be initialized using {@link #init()}
@@ -131,6 +205,15 @@ public class Ezlib {
         return pathMapper;
     }
 
+    /**
+     * Get the transport that is used to request files from repositories.
+     *
+     * @return a transport instance, the default one if it was not set.
+     */
+    public Transport getTransport() {
+        return transport == null ? defaultTransport() : transport;
+    }
+
     /**
      * Gets if the current ezlib is saving dependencies into sub folders.
      *
@@ -140,6 +223,24 @@ public class Ezlib {
         return pathSave;
     }
 
+    /**
+     * Gets if the current ezlib is saving relocated dependencies to reuse them on next loads.
+     *
+     * @return true if relocated dependencies are cached.
+     */
+    public boolean isCacheRelocations() {
+        return cacheRelocations;
+    }
+
+    /**
+     * Gets if the current ezlib is verifying downloaded files with repository checksums.
+     *
+     * @return true if downloaded files are verified.
+     */
+    public boolean isVerifyChecksums() {
+        return verifyChecksums;
+    }
+
     /**
      * Get if the current ezlib is already initialized once.
      *
@@ -180,6 +281,44 @@ public class Ezlib {
         return this;
     }
 
+    /**
+     * Set the transport that is used to request files from repositories.
+     *
+     * @param transport a transport instance, null to use the default one.
+     * @return          Current Ezlib instance.
+     */
+    public Ezlib setTransport(Transport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Change the relocated dependencies cache state.<br>
+     * If it's enabled, relocated dependencies are saved into cache folder and reused while the input file,
+     * relocations and relocator stay the same, otherwise temporary files are created on every load.
+     *
+     * @param cacheRelocations true to cache relocated dependencies.
+     * @return                 Current Ezlib instance.
+     */
+    public Ezlib setCacheRelocations(boolean cacheRelocations) {
+        this.cacheRelocations = cacheRelocations;
+        return this;
+    }
+
+    /**
+     * Change the checksum verification state.<br>
+     * If it's enabled, downloaded files are compared with repository {@code .sha1} or {@code .sha256} files
+     * and existing files without a saved checksum are verified before use them.<br>
+     * An existing file is still used if its checksum cannot be requested, and it will be verified on next load.
+     *
+     * @param verifyChecksums true to verify downloaded files.
+     * @return                Current Ezlib instance.
+     */
+    public Ezlib setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+        return this;
+    }
+
     /**
      * Change the current method to save downloaded dependencies.
      *
@@ -265,9 +404,10 @@ public class Ezlib {
     }
 
     /**
-     * Close current public class loader.
+     * Close current public class loader and save the checksums of verified files.
      */
     public void close() {
+        saveChecksums();
         if (publicClassLoader != null) {
             try {
                 publicClassLoader.close();
@@ -308,34 +448,51 @@ public class Ezlib {
         return new LoadableDependency(path).repository(repository);
     }
 
+    /**
+     * Create loadable dependency with provided coordinate.
+     *
+     * @param coordinate Dependency coordinate.
+     * @return           the dependency itself.
+     */
+    public LoadableDependency dependency(Coordinate coordinate) {
+        return new LoadableDependency(coordinate);
+    }
+
     private void load(LoadableDependency dependency) throws IllegalArgumentException {
         File file = dependency.file;
         if (dependency.file == null) {
             try {
-                file = download(dependency.path, dependency.repository, dependency.urlFormat);
+                file = download(dependency.coordinate(), dependency.repository, dependency.urlFormat);
             } catch (IOException e) {
                 throw new RuntimeException("Can't download '" + dependency + "' dependency", e);
+            } finally {
+                saveChecksums();
             }
         }
 
         if (dependency.relocations != null && !dependency.relocations.isEmpty()) {
             Path path;
-            try {
-                path = Files.createTempFile(file.getName() + '.' + Math.abs(dependency.relocations.hashCode()), ".jar");
-            } catch (IOException e) {
-                throw new RuntimeException("Cannot create temporary file for relocated dependency", e);
-            }
-            path.toFile().deleteOnExit();
+            final boolean temporary = !cacheRelocations;
+            if (temporary) {
+                try {
+                    path = Files.createTempFile(file.getName() + '.' + Math.abs(dependency.relocations.hashCode()), ".jar");
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot create temporary file for relocated dependency", e);
+                }
+                path.toFile().deleteOnExit();
 
-            try {
-                loader.relocate(file, path.toFile(), dependency.relocations);
-            } catch (Throwable t) {
-                throw new RuntimeException("Cannot relocate dependency");
+                try {
+                    loader.relocate(file, path.toFile(), dependency.relocations);
+                } catch (Throwable t) {
+                    throw new RuntimeException("Cannot relocate dependency");
+                }
+            } else {
+                path = relocate(file, dependency.relocations).toPath();
             }
 
             if (pathMapper != null) {
                 final Path result = pathMapper.apply(path);
-                if (!path.equals(result)) {
+                if (temporary && !path.equals(result)) {
                     try {
                         Files.delete(path);
                     } catch (IOException ignored) { }
@@ -373,6 +530,86 @@ public class Ezlib {
         }
     }
 
+    private File relocate(File input, Map<String, String> relocations) {
+        final File folder = new File(getCacheFolder(), "relocated");
+        if (!relocatedCleaned) {
+            relocatedCleaned = true;
+            cleanRelocated(folder);
+        }
+
+        // Relocated file is identified by input content, relocations and relocator version
+        final String key;
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(checksum(input).getBytes(StandardCharsets.UTF_8));
+            for (Map.Entry<String, String> entry : new TreeMap<>(relocations).entrySet()) {
+                digest.update((entry.getKey() + '=' + entry.getValue() + '\n').getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((VERSION + ':' + loader.relocator.getClass().getName()).getBytes(StandardCharsets.UTF_8));
+            key = toHex(digest.digest()).substring(0, 20);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Cannot calculate relocated dependency key", e);
+        }
+
+        final String name = input.getName().endsWith(".jar") ? input.getName().substring(0, input.getName().length() - 4) : input.getName();
+        final File output = new File(folder, name + '-' + key + ".jar");
+        if (output.isFile()) {
+            // Update modification time, so the file is not considered stale
+            output.setLastModified(System.currentTimeMillis());
+            return output;
+        }
+
+        File temp = null;
+        try {
+            if (!folder.exists()) {
+                folder.mkdirs();
+            }
+            // Relocate into temporary file to avoid partial files on crash
+            temp = File.createTempFile(output.getName(), ".tmp", folder);
+            loader.relocate(input, temp, relocations);
+            try {
+                Files.move(temp.toPath(), output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return output;
+        } catch (Throwable t) {
+            if (temp != null) {
+                temp.delete();
+            }
+            throw new RuntimeException("Cannot relocate dependency", t);
+        }
+    }
+
+    private void cleanRelocated(File folder) {
+        final File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        for (File file : files) {
+            final long age = now - file.lastModified();
+            // Remove temporary files from interrupted relocations and relocated files that are not used anymore
+            if ((file.getName().endsWith(".tmp") && age > TEMP_EXPIRATION) || (file.getName().endsWith(".jar") && age > RELOCATED_EXPIRATION)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Convert the provided bytes into lowercase hex string, like the checksums of a repository.
+     *
+     * @param bytes the bytes to convert.
+     * @return      a hex string with two characters per byte.
+     */
+    public static String toHex(byte[] bytes) {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
     /**
      * Download a dependency using gradle-like format (group:artifact:version) from repository url.
      *
@@ -397,9 +634,104 @@ public class Ezlib {
      * @throws IllegalArgumentException If the dependency is not formatted correctly.
      */
     public File download(String dependency, String repository, String urlFormat) throws IOException, IllegalArgumentException {
-        String path = parseUrl(dependency, urlFormat != null ? urlFormat : "%group%/%artifact%/%version%/%artifact%-%fileVersion%.jar");
+        return download(Coordinate.of(dependency), repository, urlFormat);
+    }
+
+    /**
+     * Download a dependency coordinate from repository with defined url format.
+     *
+     * @param dependency Dependency coordinate to load.
+     * @param repository Repository to download the dependency from it.
+     * @param urlFormat  Url download format.
+     * @return           A file representing the downloaded dependency.
+     * @throws IOException If any error occurs with the download.
+     */
+    public File download(Coordinate dependency, String repository, String urlFormat) throws IOException {
+        return download(dependency, repository, urlFormat != null ? UrlFormat.of(urlFormat) : UrlFormat.DEFAULT, null);
+    }
+
+    /**
+     * Download a dependency coordinate from repository with defined url format and file type.
+     *
+     * @param dependency Dependency coordinate to load.
+     * @param repository Repository to download the dependency from it.
+     * @param urlFormat  Compiled url download format.
+     * @param fileType   The file type used on url format, can be null.
+     * @return           A file representing the downloaded dependency.
+     * @throws IOException If any error occurs with the download.
+     */
+    public File download(Coordinate dependency, String repository, UrlFormat urlFormat, String fileType) throws IOException {
+        return download(dependency, repository, urlFormat, fileType, getTransport());
+    }
+
+    /**
+     * Download a dependency coordinate from repository with defined url format and file type,
+     * using the provided transport for every request.
+     *
+     * @param dependency Dependency coordinate to load.
+     * @param repository Repository to download the dependency from it.
+     * @param urlFormat  Compiled url download format.
+     * @param fileType   The file type used on url format, can be null.
+     * @param transport  The transport to request files.
+     * @return           A file representing the downloaded dependency.
+     * @throws IOException If any error occurs with the download.
+     */
+    public File download(Coordinate dependency, String repository, UrlFormat urlFormat, String fileType, Transport transport) throws IOException {
+        // The same rendered path is used as url and file location
+        String path = urlFormat.format(dependency, fileType);
         File file = findFile(path);
-        return file.exists() ? file : download(parseRepository(repository != null ? repository : defaultRepository) + path, file);
+        final URL url = new URL(parseRepository(repository != null ? repository : defaultRepository) + path);
+        if (file.exists()) {
+            if (!verifyChecksums || getTrustedChecksum(file) != null) {
+                return file;
+            }
+            // Verify existing file that was downloaded without checksum
+            final MessageDigest sha1 = newDigest("SHA-1");
+            final MessageDigest sha256 = newDigest("SHA-256");
+            digest(file.toPath(), sha1, sha256);
+            final String sha1Hex = toHex(sha1.digest());
+            final Boolean verified;
+            try {
+                verified = verifyChecksum(url, sha1Hex, toHex(sha256.digest()), transport);
+            } catch (IOException e) {
+                // Keep using the file while the repository is unreachable, it's verified again on next load
+                System.err.println("[ezlib] Cannot verify " + file + " with repository checksum, the file will be used as is: " + e);
+                return file;
+            }
+            if (!Boolean.FALSE.equals(verified)) {
+                trustChecksum(file, sha1Hex);
+                return file;
+            }
+            Files.delete(file.toPath());
+        }
+
+        trustChecksum(file, downloadVerified(url, file, transport));
+        return file;
+    }
+
+    /**
+     * Download a file from URL and save into an output file using the provided transport,
+     * calculating its SHA-1 checksum while the file is downloaded.<br>
+     * If checksum verification is enabled, the file is compared with the repository checksum
+     * next to URL and deleted if it doesn't match.
+     *
+     * @param url       URL to get the file.
+     * @param output    Output file to save the file.
+     * @param transport The transport to request the file and its checksum.
+     * @return          The SHA-1 checksum of downloaded file as hex string.
+     * @throws IOException If any error occurs with the download or the file doesn't match the repository checksum.
+     */
+    public String downloadVerified(URL url, File output, Transport transport) throws IOException {
+        // Calculate checksums while the file is downloaded
+        final MessageDigest sha1 = newDigest("SHA-1");
+        final MessageDigest sha256 = verifyChecksums ? newDigest("SHA-256") : null;
+        download(url, output, sha256 == null ? new MessageDigest[] {sha1} : new MessageDigest[] {sha1, sha256}, transport);
+        final String sha1Hex = toHex(sha1.digest());
+        if (verifyChecksums && Boolean.FALSE.equals(verifyChecksum(url, sha1Hex, toHex(sha256.digest()), transport))) {
+            Files.delete(output.toPath());
+            throw new IOException("The downloaded file from " + url + " doesn't match the repository checksum");
+        }
+        return sha1Hex;
     }
 
     /**
@@ -417,7 +749,9 @@ public class Ezlib {
 
     /**
      * Download a dependency from URL and save into an output file.<br>
-     * If output file does not exist, it will be created.
+     * If output file does not exist, it will be created.<br>
+     * The bytes are written into a {@code .part} file that is renamed to output file when the download is completed,
+     * so an interrupted download is resumed on next call if the server supports range requests.
      *
      * @param url    URL to get the dependency.
      * @param output Output file to save the dependency.
@@ -425,15 +759,268 @@ public class Ezlib {
      * @throws IOException If any error occurs with the download.
      */
     public File download(URL url, File output) throws IOException {
-        final URLConnection con = url.openConnection();
-        con.addRequestProperty("User-Agent", "Mozilla/5.0");
-        try (InputStream in = con.getInputStream(); OutputStream out = Files.newOutputStream(output.toPath())) {
-            byte[] buffer = new byte[4096];
-            int len;
-            while ((len = in.read(buffer)) > 0) {
-                out.write(buffer, 0, len);
+        return download(url, output, getTransport());
+    }
+
+    /**
+     * Download a dependency from URL and save into an output file using the provided transport.
+     *
+     * @param url       URL to get the dependency.
+     * @param output    Output file to save the dependency.
+     * @param transport The transport to request the file.
+     * @return          The same output file.
+     * @throws IOException If any error occurs with the download.
+     */
+    public File download(URL url, File output, Transport transport) throws IOException {
+        return download(url, output, new MessageDigest[0], transport);
+    }
+
+    private File download(URL url, File output, MessageDigest[] digests, Transport transport) throws IOException {
+        final File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        final File part = new File(output.getPath() + ".part");
+        if (!download(url, part, digests, part.isFile() ? part.length() : 0L, transport)) {
+            // The partial file cannot be resumed
+            Files.deleteIfExists(part.toPath());
+            download(url, part, digests, 0L, transport);
+        }
+        try {
+            Files.move(part.toPath(), output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(part.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return output;
+    }
+
+    private boolean download(URL url, File part, MessageDigest[] digests, long offset, Transport transport) throws IOException {
+        final Map<String, String> headers = offset > 0 ? Collections.singletonMap("Range", "bytes=" + offset + "-") : Collections.emptyMap();
+        try (Transport.Response response = transport.request("GET", url, headers)) {
+            if (offset > 0 && response.getCode() == 416) {
+                return false;
+            }
+            response.validate(url);
+            final boolean resume;
+            if (offset > 0 && response.getCode() == 206) {
+                final String range = response.getHeader("Content-Range");
+                if (range == null || !range.startsWith("bytes " + offset + "-")) {
+                    return false;
+                }
+                resume = true;
+                // Include the already downloaded bytes into checksums
+                if (digests.length > 0) {
+                    digest(part.toPath(), digests);
+                }
+            } else {
+                resume = false;
+            }
+            final OpenOption[] options = resume
+                    ? new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.APPEND}
+                    : new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE};
+            try (ReadableByteChannel in = openChannel(url, response); FileChannel out = FileChannel.open(part.toPath(), options)) {
+                transfer(in, out, digests);
+            }
+            return true;
+        }
+    }
+
+    private static ReadableByteChannel openChannel(URL url, Transport.Response response) throws IOException {
+        if (url.getProtocol().equals("file")) {
+            // Local repositories are read directly from file system
+            try {
+                return FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                throw new FileNotFoundException(url.toString());
+            } catch (URISyntaxException | IllegalArgumentException ignored) { }
+        }
+        return Channels.newChannel(response.getBody());
+    }
+
+    private static void transfer(ReadableByteChannel in, FileChannel out, MessageDigest[] digests) throws IOException {
+        if (in instanceof FileChannel && digests.length == 0) {
+            // Let the operating system copy the file without moving bytes into memory
+            final FileChannel source = (FileChannel) in;
+            final long start = out.size();
+            final long size = source.size();
+            long position = 0;
+            while (position < size) {
+                final long count = out.transferFrom(source, start + position, size - position);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+            }
+            return;
+        }
+        final ByteBuffer buffer = TRANSFER_BUFFER.get();
+        buffer.clear();
+        boolean end = false;
+        while (!end) {
+            end = in.read(buffer) < 0;
+            // Write only full buffers, so the file system receives large writes
+            if (!end && buffer.hasRemaining()) {
+                continue;
+            }
+            buffer.flip();
+            for (MessageDigest digest : digests) {
+                buffer.mark();
+                digest.update(buffer);
+                buffer.reset();
+            }
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static void digest(Path path, MessageDigest... digests) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = TRANSFER_BUFFER.get();
+            buffer.clear();
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                for (MessageDigest digest : digests) {
+                    buffer.mark();
+                    digest.update(buffer);
+                    buffer.reset();
+                }
+                buffer.clear();
             }
-            return output;
+        }
+    }
+
+    /**
+     * Get the SHA-1 checksum of the provided file.<br>
+     * If the file was downloaded and verified before, the saved checksum is used without reading the file.
+     *
+     * @param file the file to calculate its checksum.
+     * @return     a SHA-1 checksum as hex string.
+     * @throws IOException if any error occurs while reading the file.
+     */
+    public String checksum(File file) throws IOException {
+        final String trusted = getTrustedChecksum(file);
+        if (trusted != null) {
+            return trusted;
+        }
+        final MessageDigest digest = newDigest("SHA-1");
+        digest(file.toPath(), digest);
+        return toHex(digest.digest());
+    }
+
+    private Boolean verifyChecksum(URL url, String sha1, String sha256, Transport transport) throws IOException {
+        String expected = requestChecksum(url, ".sha1", transport);
+        final String actual;
+        if (expected != null) {
+            actual = sha1;
+        } else {
+            expected = requestChecksum(url, ".sha256", transport);
+            if (expected == null) {
+                // The repository doesn't provide checksums
+                return null;
+            }
+            actual = sha256;
+        }
+        return expected.equalsIgnoreCase(actual);
+    }
+
+    private String requestChecksum(URL url, String extension, Transport transport) throws IOException {
+        final URL checksumUrl = new URL(url.toString() + extension);
+        try (Transport.Response response = transport.request("GET", checksumUrl, Collections.emptyMap())) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = response.validate(checksumUrl).getBody()) {
+                byte[] buffer = new byte[256];
+                int len;
+                while ((len = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, len);
+                }
+            }
+            // Checksum files may contain the file name after the checksum
+            final String text = new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+            final int space = text.indexOf(' ');
+            return text.isEmpty() ? null : space > 0 ? text.substring(0, space) : text;
+        } catch (FileNotFoundException e) {
+            // Only a missing checksum file means the repository doesn't provide it
+            return null;
+        }
+    }
+
+    private synchronized String getTrustedChecksum(File file) {
+        final String value = getChecksums().getProperty(checksumKey(file));
+        if (value == null) {
+            return null;
+        }
+        // Saved value format: <size>:<last modified>:<sha1>
+        final String[] split = value.split(":", 3);
+        if (split.length < 3 || !split[0].equals(String.valueOf(file.length())) || !split[1].equals(String.valueOf(file.lastModified()))) {
+            return null;
+        }
+        return split[2];
+    }
+
+    /**
+     * Save the SHA-1 checksum of a verified file, so the file is not verified again
+     * while its size and last modified time stay the same.
+     *
+     * @param file the verified file.
+     * @param sha1 the SHA-1 checksum of the file as hex string.
+     */
+    public synchronized void trustChecksum(File file, String sha1) {
+        getChecksums().setProperty(checksumKey(file), file.length() + ":" + file.lastModified() + ":" + sha1);
+        checksumsChanged = true;
+    }
+
+    /**
+     * Save the checksums of verified files into cache folder, if any file was verified since the last save.<br>
+     * The saved checksums are used to skip the verification of already downloaded files on next loads.
+     */
+    public synchronized void saveChecksums() {
+        if (!checksumsChanged) {
+            return;
+        }
+        checksumsChanged = false;
+        final File index = new File(getCacheFolder(), "checksums.properties");
+        try {
+            if (!index.getParentFile().exists()) {
+                index.getParentFile().mkdirs();
+            }
+            final File temp = new File(index.getPath() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+                checksums.store(out, "Verified files by ezlib, format: <size>:<last modified>:<sha1>");
+            }
+            Files.move(temp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Properties getChecksums() {
+        if (checksums == null) {
+            checksums = new Properties();
+            final File index = new File(getCacheFolder(), "checksums.properties");
+            if (index.exists()) {
+                try (InputStream in = Files.newInputStream(index.toPath())) {
+                    checksums.load(in);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return checksums;
+    }
+
+    private String checksumKey(File file) {
+        final Path base = folder.getAbsoluteFile().toPath();
+        final Path path = file.getAbsoluteFile().toPath();
+        return (path.startsWith(base) ? base.relativize(path) : path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static MessageDigest newDigest(String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Cannot find " + algorithm + " algorithm", e);
         }
     }
 
@@ -447,6 +1034,44 @@ public class Ezlib {
         return repository.endsWith("/") ? repository : repository + "/";
     }
 
+    /**
+     * Get the file used to save a dependency using gradle-like format (group:artifact:version) with defined url format.<br>
+     * Take in count the file and its folder may not exist if the dependency wasn't downloaded.
+     *
+     * @param dependency The dependency gradle-like path.
+     * @param urlFormat  The url format after repository url.
+     * @return           A file representing the dependency in the current folder.
+     * @throws IllegalArgumentException if the dependency is not formatted correctly.
+     */
+    public File getFile(String dependency, String urlFormat) throws IllegalArgumentException {
+        return getFile(Coordinate.of(dependency), urlFormat);
+    }
+
+    /**
+     * Get the file used to save a dependency coordinate with defined url format.<br>
+     * Take in count the file and its folder may not exist if the dependency wasn't downloaded.
+     *
+     * @param dependency The dependency coordinate.
+     * @param urlFormat  The url format after repository url.
+     * @return           A file representing the dependency in the current folder.
+     */
+    public File getFile(Coordinate dependency, String urlFormat) {
+        return getFile(dependency, urlFormat != null ? UrlFormat.of(urlFormat) : UrlFormat.DEFAULT, null);
+    }
+
+    /**
+     * Get the file used to save a dependency coordinate with defined url format and file type.<br>
+     * Take in count the file and its folder may not exist if the dependency wasn't downloaded.
+     *
+     * @param dependency The dependency coordinate.
+     * @param urlFormat  The compiled url format after repository url.
+     * @param fileType   The file type used on url format, can be null.
+     * @return           A file representing the dependency in the current folder.
+     */
+    public File getFile(Coordinate dependency, UrlFormat urlFormat, String fileType) {
+        return findFile(urlFormat.format(dependency, fileType));
+    }
+
     /**
      * Parse the provided dependency using url format.
      *
@@ -456,28 +1081,7 @@ public class Ezlib {
      * @throws IllegalArgumentException if the dependency is not formatted correctly.
      */
     public String parseUrl(String dependency, String urlFormat) throws IllegalArgumentException {
-        final String[] split = dependency.split(":");
-        if (split.length < 3) {
-            throw new IllegalArgumentException("Malformed dependency");
-        }
-        String group = split[0].replace(".", "/");
-        StringJoiner fileVersion = new StringJoiner("-");
-        for (int i = 2; i < split.length; i++) {
-            final String s = split[i];
-            final int index = s.indexOf('@') + 1;
-            if (index > 1 && index < s.length()) {
-                fileVersion.add(s.substring(index));
-                split[i] = s.substring(0, index - 1);
-            } else {
-                fileVersion.add(s);
-            }
-        }
-
-        return urlFormat
-                .replace("%group%", group)
-                .replace("%artifact%", split[1])
-                .replace("%version%", split[2])
-                .replace("%fileVersion%", fileVersion.toString());
+        return Coordinate.of(dependency).format(urlFormat);
     }
 
     private File findFile(String path) {
@@ -489,9 +1093,6 @@ public class Ezlib {
                 folder = new File(folder, s);
             }
         }
-        if (!folder.exists()) {
-            folder.mkdirs();
-        }
         return new File(folder, name);
     }
 
@@ -526,6 +1127,456 @@ public class Ezlib {
         }
     }
 
+    /**
+     * Transport layer to request files from repositories.
+     */
+    @FunctionalInterface
+    public interface Transport {
+
+        /**
+         * Default timeout in milliseconds to establish a connection.
+         */
+        int CONNECT_TIMEOUT = 10000;
+        /**
+         * Default timeout in milliseconds to wait for a response.
+         */
+        int READ_TIMEOUT = 30000;
+
+        /**
+         * Request the provided URL.<br>
+         * The returned response must be closed, so the connection can be reused.
+         *
+         * @param method  the request method, like GET or HEAD.
+         * @param url     the URL to request.
+         * @param headers the request headers.
+         * @return        a response from URL.
+         * @throws IOException if any error occurs while the request is sent.
+         */
+        Response request(String method, URL url, Map<String, String> headers) throws IOException;
+
+        /**
+         * Response from a transport request.
+         */
+        interface Response extends Closeable {
+
+            /**
+             * Get the response status code.
+             *
+             * @return a status code, 200 for protocols without status codes.
+             */
+            int getCode();
+
+            /**
+             * Get the value of the response header.
+             *
+             * @param name the header name.
+             * @return     the header value or null.
+             */
+            String getHeader(String name);
+
+            /**
+             * Get the response body.
+             *
+             * @return an input stream with response bytes.
+             * @throws IOException if any error occurs while the body is read.
+             */
+            InputStream getBody() throws IOException;
+
+            /**
+             * Check if the response status code represents a successful request.
+             *
+             * @param url the requested URL.
+             * @return    the current response.
+             * @throws FileNotFoundException if the file doesn't exist on requested URL.
+             * @throws IOException           if the response status code represents an error.
+             */
+            default Response validate(URL url) throws IOException {
+                final int code = getCode();
+                if (code == 404 || code == 410) {
+                    throw new FileNotFoundException(url.toString());
+                } else if (code >= 400) {
+                    throw new IOException("Server returned HTTP response code: " + code + " for URL: " + url);
+                }
+                return this;
+            }
+        }
+    }
+
+    /**
+     * Transport implementation that uses {@link URLConnection} for every request.<br>
+     * Keep-alive connections are reused by the JDK while the responses are closed correctly.
+     */
+    public static class UrlTransport implements Transport {
+
+        private final int connectTimeout;
+        private final int readTimeout;
+
+        /**
+         * Constructs an UrlTransport with provided timeouts.
+         *
+         * @param connectTimeout timeout in milliseconds to establish a connection.
+         * @param readTimeout    timeout in milliseconds to read from a connection.
+         */
+        public UrlTransport(int connectTimeout, int readTimeout) {
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+        }
+
+        @Override
+        public Response request(String method, URL url, Map<String, String> headers) throws IOException {
+            final URLConnection con = url.openConnection();
+            con.setConnectTimeout(connectTimeout);
+            con.setReadTimeout(readTimeout);
+            con.addRequestProperty("User-Agent", USER_AGENT);
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                con.addRequestProperty(entry.getKey(), entry.getValue());
+            }
+            final int code;
+            if (con instanceof HttpURLConnection) {
+                ((HttpURLConnection) con).setRequestMethod(method);
+                code = ((HttpURLConnection) con).getResponseCode();
+            } else {
+                code = 200;
+            }
+            return new Response() {
+                private InputStream body;
+
+                @Override
+                public int getCode() {
+                    return code;
+                }
+
+                @Override
+                public String getHeader(String name) {
+                    return con.getHeaderField(name);
+                }
+
+                @Override
+                public InputStream getBody() throws IOException {
+                    if (body == null) {
+                        body = con.getInputStream();
+                    }
+                    return body;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (body != null) {
+                        body.close();
+                    } else if (code >= 400 && con instanceof HttpURLConnection) {
+                        // Consume error stream to make the connection reusable
+                        final InputStream error = ((HttpURLConnection) con).getErrorStream();
+                        if (error != null) {
+                            // Error pages are small, so they are read until the end
+                            try (InputStream in = error) {
+                                final byte[] buffer = new byte[1024];
+                                int len;
+                                do {
+                                    len = in.read(buffer);
+                                } while (len >= 0);
+                            }
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Transport implementation that uses a pooled java.net.http.HttpClient, available on Java 11 or higher.<br>
+     * The client negotiates HTTP/2 with repositories that support it, so multiple requests share a single connection.
+     * Other protocols than HTTP are requested using {@link UrlTransport}.<br>
+     * The read timeout is applied while waiting for response headers and for every part of the response body.
+     */
+    public static class HttpClientTransport implements Transport {
+
+        private static final Object END_OF_BODY = new Object();
+
+        private final Object client;
+        private final Object bodyHandler;
+        private final Object noBody;
+        private final Duration readTimeout;
+        private final UrlTransport fallback;
+
+        private final Class<?> subscriberClass;
+        private final Method subscribe;
+        private final Method subscriptionRequest;
+        private final Method subscriptionCancel;
+
+        private final Method newRequest;
+        private final Method requestTimeout;
+        private final Method requestHeader;
+        private final Method requestMethod;
+        private final Method requestBuild;
+        private final Method send;
+        private final Method statusCode;
+        private final Method headers;
+        private final Method firstValue;
+        private final Method body;
+
+        /**
+         * Constructs an HttpClientTransport with provided timeouts.
+         *
+         * @param connectTimeout timeout in milliseconds to establish a connection.
+         * @param readTimeout    timeout in milliseconds to wait for a response or the next bytes of response body.
+         * @throws ReflectiveOperationException if the HTTP client is not available on current Java version.
+         */
+        public HttpClientTransport(int connectTimeout, int readTimeout) throws ReflectiveOperationException {
+            final Class<?> clientClass = Class.forName("java.net.http.HttpClient");
+            final Class<?> clientBuilderClass = Class.forName("java.net.http.HttpClient$Builder");
+            final Class<?> redirectClass = Class.forName("java.net.http.HttpClient$Redirect");
+            final Class<?> requestClass = Class.forName("java.net.http.HttpRequest");
+            final Class<?> requestBuilderClass = Class.forName("java.net.http.HttpRequest$Builder");
+            final Class<?> publisherClass = Class.forName("java.net.http.HttpRequest$BodyPublisher");
+            final Class<?> handlerClass = Class.forName("java.net.http.HttpResponse$BodyHandler");
+            final Class<?> responseClass = Class.forName("java.net.http.HttpResponse");
+            final Class<?> headersClass = Class.forName("java.net.http.HttpHeaders");
+
+            Object builder = clientClass.getMethod("newBuilder").invoke(null);
+            clientBuilderClass.getMethod("connectTimeout", Duration.class).invoke(builder, Duration.ofMillis(connectTimeout));
+            clientBuilderClass.getMethod("followRedirects", redirectClass).invoke(builder, redirectClass.getField("NORMAL").get(null));
+            this.client = clientBuilderClass.getMethod("build").invoke(builder);
+            // The body is received as publisher, because the input stream handler doesn't have any read timeout
+            this.bodyHandler = Class.forName("java.net.http.HttpResponse$BodyHandlers").getMethod("ofPublisher").invoke(null);
+            this.noBody = Class.forName("java.net.http.HttpRequest$BodyPublishers").getMethod("noBody").invoke(null);
+            this.readTimeout = Duration.ofMillis(readTimeout);
+            this.fallback = new UrlTransport(connectTimeout, readTimeout);
+
+            this.newRequest = requestClass.getMethod("newBuilder", java.net.URI.class);
+            this.requestTimeout = requestBuilderClass.getMethod("timeout", Duration.class);
+            this.requestHeader = requestBuilderClass.getMethod("header", String.class, String.class);
+            this.requestMethod = requestBuilderClass.getMethod("method", String.class, publisherClass);
+            this.requestBuild = requestBuilderClass.getMethod("build");
+            this.send = clientClass.getMethod("send", requestClass, handlerClass);
+            this.statusCode = responseClass.getMethod("statusCode");
+            this.headers = responseClass.getMethod("headers");
+            this.firstValue = headersClass.getMethod("firstValue", String.class);
+            this.body = responseClass.getMethod("body");
+
+            this.subscriberClass = Class.forName("java.util.concurrent.Flow$Subscriber");
+            this.subscribe = Class.forName("java.util.concurrent.Flow$Publisher").getMethod("subscribe", subscriberClass);
+            final Class<?> subscriptionClass = Class.forName("java.util.concurrent.Flow$Subscription");
+            this.subscriptionRequest = subscriptionClass.getMethod("request", long.class);
+            this.subscriptionCancel = subscriptionClass.getMethod("cancel");
+        }
+
+        @Override
+        public Response request(String method, URL url, Map<String, String> headers) throws IOException {
+            final String protocol = url.getProtocol();
+            if (!protocol.equals("http") && !protocol.equals("https")) {
+                return fallback.request(method, url, headers);
+            }
+            final Object response;
+            final int code;
+            try {
+                final Object builder = newRequest.invoke(null, url.toURI());
+                requestTimeout.invoke(builder, readTimeout);
+                requestHeader.invoke(builder, "User-Agent", USER_AGENT);
+                for (Map.Entry<String, String> entry : headers.entrySet()) {
+                    requestHeader.invoke(builder, entry.getKey(), entry.getValue());
+                }
+                requestMethod.invoke(builder, method, noBody);
+                response = send.invoke(client, requestBuild.invoke(builder), bodyHandler);
+                code = (int) statusCode.invoke(response);
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Cannot request " + url, cause);
+            } catch (IllegalAccessException | URISyntaxException e) {
+                throw new IOException("Cannot request " + url, e);
+            }
+            return new Response() {
+                private BodyStream stream;
+
+                @Override
+                public int getCode() {
+                    return code;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public String getHeader(String name) {
+                    try {
+                        return ((Optional<String>) firstValue.invoke(HttpClientTransport.this.headers.invoke(response), name)).orElse(null);
+                    } catch (IllegalAccessException | InvocationTargetException e) {
+                        return null;
+                    }
+                }
+
+                @Override
+                public InputStream getBody() throws IOException {
+                    if (stream == null) {
+                        try {
+                            stream = new BodyStream(body.invoke(response));
+                        } catch (IllegalAccessException | InvocationTargetException e) {
+                            throw new IOException("Cannot get response body from " + url, e);
+                        }
+                    }
+                    return stream;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // Closing the body releases the HTTP/2 stream or the pooled connection
+                    getBody().close();
+                }
+            };
+        }
+
+        /**
+         * Input stream that subscribes to a response body publisher and waits for every
+         * part of the body no longer than the read timeout.
+         */
+        private class BodyStream extends InputStream {
+
+            private final Object publisher;
+            private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+            private volatile Object subscription;
+            private volatile boolean closed;
+            private boolean subscribed;
+            private boolean finished;
+            private Iterator<ByteBuffer> buffers;
+            private ByteBuffer current;
+
+            BodyStream(Object publisher) {
+                this.publisher = publisher;
+            }
+
+            private void subscribe() throws IOException {
+                if (subscribed) {
+                    return;
+                }
+                subscribed = true;
+                final Object subscriber = Proxy.newProxyInstance(subscriberClass.getClassLoader(), new Class<?>[] {subscriberClass}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "onSubscribe":
+                            subscription = args[0];
+                            if (closed) {
+                                subscriptionCancel.invoke(args[0]);
+                            } else {
+                                subscriptionRequest.invoke(args[0], 1L);
+                            }
+                            return null;
+                        case "onNext":
+                            queue.add(args[0]);
+                            return null;
+                        case "onError":
+                            queue.add(args[0]);
+                            return null;
+                        case "onComplete":
+                            queue.add(END_OF_BODY);
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return "BodyStream";
+                    }
+                });
+                try {
+                    subscribe.invoke(publisher, subscriber);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IOException("Cannot subscribe to response body", e);
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            private ByteBuffer current() throws IOException {
+                while (current == null || !current.hasRemaining()) {
+                    if (buffers != null && buffers.hasNext()) {
+                        current = buffers.next();
+                        continue;
+                    }
+                    if (closed) {
+                        throw new IOException("Stream closed");
+                    }
+                    if (finished) {
+                        return null;
+                    }
+                    subscribe();
+                    final Object item;
+                    try {
+                        item = queue.poll(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while reading response body");
+                    }
+                    if (item == null) {
+                        close();
+                        throw new SocketTimeoutException("Read timed out after " + readTimeout.toMillis() + "ms");
+                    } else if (item == END_OF_BODY) {
+                        finished = true;
+                        return null;
+                    } else if (item instanceof Throwable) {
+                        finished = true;
+                        throw item instanceof IOException ? (IOException) item : new IOException("Cannot read response body", (Throwable) item);
+                    }
+                    buffers = ((List<ByteBuffer>) item).iterator();
+                    // Request the next part while the current one is read
+                    request();
+                }
+                return current;
+            }
+
+            private void request() throws IOException {
+                try {
+                    subscriptionRequest.invoke(subscription, 1L);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IOException("Cannot request response body", e);
+                }
+            }
+
+            @Override
+            public int read() throws IOException {
+                final ByteBuffer buffer = current();
+                return buffer == null ? -1 : buffer.get() & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                final ByteBuffer buffer = current();
+                if (buffer == null) {
+                    return -1;
+                }
+                final int count = Math.min(len, buffer.remaining());
+                buffer.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return current == null ? 0 : current.remaining();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                // A body that was never subscribed is cancelled when the subscription is received
+                final Object subscription = this.subscription;
+                if (subscription == null) {
+                    subscribe();
+                } else if (!finished) {
+                    try {
+                        subscriptionCancel.invoke(subscription);
+                    } catch (IllegalAccessException | InvocationTargetException e) {
+                        throw new IOException("Cannot cancel response body", e);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Loader class to relocate and append files.
      */
@@ -646,6 +1697,393 @@ public class Ezlib {
         }
     }
 
+    /**
+     * Immutable dependency coordinate parsed from gradle-like path format (group:artifact:version).<br>
+     * The version can define a file version after '@', and any extra part is taken as classifier.
+     */
+    public static final class Coordinate {
+
+        private static final int MAX_CACHE = 4096;
+        private static final Map<String, Coordinate> CACHE = new ConcurrentHashMap<>();
+
+        private final String path;
+        private final String group;
+        private final String artifact;
+        private final String version;
+        private final String fileVersion;
+        private final String classifier;
+        private final String extra;
+        private final boolean fileVersionDefined;
+        private final int hash;
+
+        /**
+         * Get a coordinate from gradle-like path format (group:artifact:version), the coordinate is parsed once and cached.
+         *
+         * @param path Dependency path.
+         * @return     A coordinate that represents the provided path.
+         * @throws IllegalArgumentException if the dependency is not formatted correctly.
+         */
+        public static Coordinate of(String path) throws IllegalArgumentException {
+            Coordinate coordinate = CACHE.get(path);
+            if (coordinate == null) {
+                coordinate = new Coordinate(path);
+                if (CACHE.size() >= MAX_CACHE) {
+                    CACHE.clear();
+                }
+                CACHE.put(path, coordinate);
+            }
+            return coordinate;
+        }
+
+        private Coordinate(String original) throws IllegalArgumentException {
+            // Trailing empty parts are ignored like String#split does
+            int length = original.length();
+            while (length > 0 && original.charAt(length - 1) == ':') {
+                length--;
+            }
+            final String path = length < original.length() ? original.substring(0, length) : original;
+            final int first = path.indexOf(':');
+            final int second = first < 0 ? -1 : path.indexOf(':', first + 1);
+            final int third = second < 0 ? -1 : path.indexOf(':', second + 1);
+            if (second < 0 || third == second + 1) {
+                throw new IllegalArgumentException("Malformed dependency");
+            }
+            this.path = original;
+            this.group = path.substring(0, first);
+            this.artifact = path.substring(first + 1, second);
+            this.extra = third < 0 ? "" : path.substring(third);
+
+            // Every part after artifact can define a different name for file
+            final String version = third < 0 ? path.substring(second + 1) : path.substring(second + 1, third);
+            final StringBuilder fileVersion = new StringBuilder(fileVersion(version));
+            final StringBuilder classifier = new StringBuilder();
+            int start = third;
+            while (start >= 0) {
+                final int end = path.indexOf(':', start + 1);
+                final String part = fileVersion(end < 0 ? path.substring(start + 1) : path.substring(start + 1, end));
+                fileVersion.append('-').append(part);
+                if (classifier.length() > 0) {
+                    classifier.append('-');
+                }
+                classifier.append(part);
+                start = end;
+            }
+            final int index = version.indexOf('@') + 1;
+            this.version = index > 1 && index < version.length() ? version.substring(0, index - 1) : version;
+            this.fileVersion = fileVersion.toString();
+            this.classifier = classifier.length() > 0 ? classifier.toString() : null;
+            this.fileVersionDefined = version.indexOf('@') > 0;
+            this.hash = original.hashCode();
+        }
+
+        private static String fileVersion(String s) {
+            final int index = s.indexOf('@') + 1;
+            return index > 1 && index < s.length() ? s.substring(index) : s;
+        }
+
+        /**
+         * Get the full gradle-like path.
+         *
+         * @return A dependency path.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Get the dependency group.
+         *
+         * @return A group id.
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        /**
+         * Get the dependency artifact.
+         *
+         * @return An artifact id.
+         */
+        public String getArtifact() {
+            return artifact;
+        }
+
+        /**
+         * Get the dependency version without file version.
+         *
+         * @return A version string.
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the version used on dependency file name, including the classifier.
+         *
+         * @return A file version string.
+         */
+        public String getFileVersion() {
+            return fileVersion;
+        }
+
+        /**
+         * Get the dependency classifier.
+         *
+         * @return A classifier string or null.
+         */
+        public String getClassifier() {
+            return classifier;
+        }
+
+        /**
+         * Get the group and artifact separated by ':'.
+         *
+         * @return A dependency id.
+         */
+        public String getId() {
+            return group + ':' + artifact;
+        }
+
+        /**
+         * Check if the current version is a version path that must be read from maven metadata.
+         *
+         * @return true if the version starts with '@'.
+         */
+        public boolean isVersionPath() {
+            return !version.isEmpty() && version.charAt(0) == '@';
+        }
+
+        /**
+         * Check if the current version defines a file version.
+         *
+         * @return true if the version contains a file version after '@'.
+         */
+        public boolean hasFileVersion() {
+            return fileVersionDefined;
+        }
+
+        /**
+         * Get a coordinate with the same group, artifact and classifier using a different version.
+         *
+         * @param version Version string, can contain a file version after '@'.
+         * @return        A coordinate with the provided version.
+         */
+        public Coordinate withVersion(String version) {
+            return of(group + ':' + artifact + ':' + version + extra);
+        }
+
+        /**
+         * Format the current coordinate using url format.
+         *
+         * @param urlFormat The url format after repository url.
+         * @return          The current coordinate as url format to use with repository url.
+         */
+        public String format(String urlFormat) {
+            return UrlFormat.of(urlFormat).format(this, null);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final Coordinate that = (Coordinate) o;
+            return hash == that.hash && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
+
+    /**
+     * Compiled url format, like "%group%/%artifact%/%version%/%artifact%-%fileVersion%.jar".<br>
+     * The format is split once into literal and placeholder segments, so every url is rendered in a single pass.<br>
+     * Supported placeholders are %group%, %artifact%, %version%, %fileVersion%, %classifier%, %fileType% and %extension%.
+     */
+    public static final class UrlFormat {
+
+        private static final int MAX_CACHE = 256;
+        private static final Map<String, UrlFormat> CACHE = new ConcurrentHashMap<>();
+
+        private static final int LITERAL = 0;
+        private static final int GROUP = 1;
+        private static final int ARTIFACT = 2;
+        private static final int VERSION = 3;
+        private static final int FILE_VERSION = 4;
+        private static final int CLASSIFIER = 5;
+        private static final int FILE_TYPE = 6;
+
+        /**
+         * Default url format to download jar files.
+         */
+        public static final UrlFormat DEFAULT = of("%group%/%artifact%/%version%/%artifact%-%fileVersion%.jar");
+
+        private final String format;
+        private final int[] types;
+        private final String[] values;
+        private final int length;
+
+        /**
+         * Get a compiled url format, the format is compiled once and cached.
+         *
+         * @param format Url format.
+         * @return       A compiled url format.
+         */
+        public static UrlFormat of(String format) {
+            UrlFormat urlFormat = CACHE.get(format);
+            if (urlFormat == null) {
+                urlFormat = new UrlFormat(format);
+                if (CACHE.size() >= MAX_CACHE) {
+                    CACHE.clear();
+                }
+                CACHE.put(format, urlFormat);
+            }
+            return urlFormat;
+        }
+
+        private UrlFormat(String format) {
+            this.format = format;
+            final List<Integer> types = new ArrayList<>();
+            final List<String> values = new ArrayList<>();
+            final StringBuilder literal = new StringBuilder();
+            int length = 0;
+            int start = 0;
+            while (start < format.length()) {
+                final int open = format.indexOf('%', start);
+                final int close = open < 0 ? -1 : format.indexOf('%', open + 1);
+                if (close < 0) {
+                    literal.append(format, start, format.length());
+                    break;
+                }
+                final int type = type(format.substring(open + 1, close));
+                if (type == LITERAL) {
+                    // Not a placeholder, so the closing char can open the next one
+                    literal.append(format, start, close);
+                    start = close;
+                    continue;
+                }
+                literal.append(format, start, open);
+                if (literal.length() > 0) {
+                    types.add(LITERAL);
+                    values.add(literal.toString());
+                    length += literal.length();
+                    literal.setLength(0);
+                }
+                types.add(type);
+                // Keep the placeholder text, so it can be written as is when value is not provided
+                values.add(format.substring(open, close + 1));
+                length += 16;
+                start = close + 1;
+            }
+            if (literal.length() > 0) {
+                types.add(LITERAL);
+                values.add(literal.toString());
+                length += literal.length();
+            }
+            this.types = new int[types.size()];
+            for (int i = 0; i < this.types.length; i++) {
+                this.types[i] = types.get(i);
+            }
+            this.values = values.toArray(new String[0]);
+            this.length = length;
+        }
+
+        private static int type(String name) {
+            switch (name) {
+                case "group":
+                    return GROUP;
+                case "artifact":
+                    return ARTIFACT;
+                case "version":
+                    return VERSION;
+                case "fileVersion":
+                    return FILE_VERSION;
+                case "classifier":
+                    return CLASSIFIER;
+                case "fileType":
+                case "extension":
+                    return FILE_TYPE;
+                default:
+                    return LITERAL;
+            }
+        }
+
+        /**
+         * Get the original url format.
+         *
+         * @return An url format string.
+         */
+        public String getFormat() {
+            return format;
+        }
+
+        /**
+         * Render the provided coordinate with the current format.
+         *
+         * @param coordinate Dependency coordinate.
+         * @param fileType   The file type or extension, null to keep the placeholder.
+         * @return           The coordinate as url format to use with repository url.
+         */
+        public String format(Coordinate coordinate, String fileType) {
+            return append(new StringBuilder(length), coordinate, fileType).toString();
+        }
+
+        /**
+         * Render the provided coordinate with the current format into string builder.
+         *
+         * @param builder    The string builder to append into.
+         * @param coordinate Dependency coordinate.
+         * @param fileType   The file type or extension, null to keep the placeholder.
+         * @return           The provided string builder.
+         */
+        public StringBuilder append(StringBuilder builder, Coordinate coordinate, String fileType) {
+            for (int i = 0; i < types.length; i++) {
+                switch (types[i]) {
+                    case GROUP:
+                        final String group = coordinate.getGroup();
+                        for (int c = 0; c < group.length(); c++) {
+                            final char ch = group.charAt(c);
+                            builder.append(ch == '.' ? '/' : ch);
+                        }
+                        break;
+                    case ARTIFACT:
+                        builder.append(coordinate.getArtifact());
+                        break;
+                    case VERSION:
+                        builder.append(coordinate.getVersion());
+                        break;
+                    case FILE_VERSION:
+                        builder.append(coordinate.getFileVersion());
+                        break;
+                    case CLASSIFIER:
+                        if (coordinate.getClassifier() != null) {
+                            builder.append(coordinate.getClassifier());
+                        }
+                        break;
+                    case FILE_TYPE:
+                        builder.append(fileType != null ? fileType : values[i]);
+                        break;
+                    default:
+                        builder.append(values[i]);
+                        break;
+                }
+            }
+            return builder;
+        }
+
+        @Override
+        public String toString() {
+            return format;
+        }
+    }
+
     /**
      * Loadable dependency class to edit dependency after load.
      */
@@ -654,6 +2092,7 @@ public class Ezlib {
         private final String path;
         private final File file;
 
+        private Coordinate coordinate;
         private String repository;
         private String urlFormat;
         private Map<String, String> relocations;
@@ -669,6 +2108,17 @@ public class Ezlib {
             this.file = null;
         }
 
+        /**
+         * Constructs a loadable dependency using coordinate.
+         *
+         * @param coordinate Dependency coordinate.
+         */
+        public LoadableDependency(Coordinate coordinate) {
+            this.path = coordinate.getPath();
+            this.file = null;
+            this.coordinate = coordinate;
+        }
+
         /**
          * Constructs a loadable dependency using existing file.
          *
@@ -731,5 +2181,13 @@ public class Ezlib {
         public void load() throws IllegalArgumentException {
             Ezlib.this.load(this);
         }
+
+        private Coordinate coordinate() throws IllegalArgumentException {
+            // The path is parsed on load, so a malformed path is reported at the same point as before
+            if (coordinate == null) {
+                coordinate = Coordinate.of(path);
+            }
+            return coordinate;
+        }
     }
 }